@@ -14,7 +14,8 @@ import androidx.activity.OnBackPressedCallback;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.searchbar.aii.models.Task;
-import com.searchbar.aii.utils.FirebaseHelper;
+import com.searchbar.aii.utils.DueDates;
+import com.searchbar.aii.utils.TaskRepository;
 
 import java.util.Calendar;
 
@@ -24,7 +25,7 @@ public class AddTaskActivity extends AppCompatActivity {
     private Spinner prioritySpinner;
     private Button saveTaskButton;
     private ProgressBar progressBar;
-    private FirebaseHelper firebaseHelper;
+    private Long selectedDueDay;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -37,9 +38,6 @@ public class AddTaskActivity extends AppCompatActivity {
             getSupportActionBar().setDisplayHomeAsUpEnabled(true);
         }
 
-        // Initialize Firebase Helper
-        firebaseHelper = new FirebaseHelper(this);
-
         // Initialize Views
         initViews();
 
@@ -90,6 +88,7 @@ public class AddTaskActivity extends AppCompatActivity {
                     (view, selectedYear, selectedMonth, selectedDay) -> {
                         String date = selectedDay + "/" + (selectedMonth + 1) + "/" + selectedYear;
                         dueDateEditText.setText(date);
+                        selectedDueDay = DueDates.toEpochDay(selectedYear, selectedMonth + 1, selectedDay);
                     },
                     year, month, day
             );
@@ -112,41 +111,20 @@ public class AddTaskActivity extends AppCompatActivity {
             return;
         }
 
-        // Show loading
-        showLoading(true);
-
         // Create task object
         Task task = new Task(title, description, dueDate, priority, "Pending", assignedTo, 0);
+        task.setDueDay(selectedDueDay);
 
-        // Add to Firebase
-        firebaseHelper.addTask(task, new FirebaseHelper.OnTaskCompleteListener() {
-            @Override
-            public void onSuccess() {
-                showLoading(false);
-                Toast.makeText(AddTaskActivity.this,
-                        "Task added successfully!", Toast.LENGTH_SHORT).show();
-                finish(); // Return to MainActivity
-            }
-
-            @Override
-            public void onFailure(String error) {
-                showLoading(false);
-                Toast.makeText(AddTaskActivity.this,
-                        "Failed to add task: " + error, Toast.LENGTH_LONG).show();
-            }
-        });
-    }
-
-    private void showLoading(boolean show) {
-        if (show) {
-            progressBar.setVisibility(View.VISIBLE);
-            saveTaskButton.setEnabled(false);
-            saveTaskButton.setText("Saving...");
-        } else {
-            progressBar.setVisibility(View.GONE);
-            saveTaskButton.setEnabled(true);
-            saveTaskButton.setText("SAVE TASK");
+        // Queued locally; the outbox sends it to Firebase in the background, also after a restart
+        if (TaskRepository.getInstance(this).addTask(task) == null) {
+            Toast.makeText(AddTaskActivity.this,
+                    "Failed to add task: User not logged in", Toast.LENGTH_LONG).show();
+            return;
         }
+
+        Toast.makeText(AddTaskActivity.this,
+                "Task added successfully!", Toast.LENGTH_SHORT).show();
+        finish(); // Return to MainActivity
     }
 
     private void setupBackPressHandler() {
@@ -5,6 +5,9 @@ import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextWatcher;
+import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
@@ -25,13 +28,22 @@ import com.google.android.material.navigation.NavigationView;
 import com.google.android.material.tabs.TabLayout;
 import com.searchbar.aii.adapters.TaskAdapter;
 import com.searchbar.aii.models.Task;
+import com.searchbar.aii.utils.DueDates;
 import com.searchbar.aii.utils.FirebaseHelper;
+import com.searchbar.aii.utils.Outbox;
+import com.searchbar.aii.utils.SearchScheduler;
+import com.searchbar.aii.utils.TaskIndex;
+import com.searchbar.aii.utils.TaskPager;
+import com.searchbar.aii.utils.TaskQuery;
+import com.searchbar.aii.utils.TaskRepository;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 public class MainActivity extends AppCompatActivity {
 
+    private static final String TAG = "MainActivity";
     private DrawerLayout drawerLayout;
     private NavigationView navigationView;
     private Toolbar toolbar;
@@ -42,11 +54,19 @@ public class MainActivity extends AppCompatActivity {
     private Button filterButton;
 
     private TaskAdapter taskAdapter;
+    private TaskPager taskPager;
     private FirebaseHelper firebaseHelper;
     private SharedPreferences sharedPreferences;
 
-    private String currentFilter = "All";
-    private List<Task> allTasks = new ArrayList<>();
+    // Everything the list is filtered, searched and sorted by; each control changes one part
+    private TaskQuery query = TaskQuery.ALL;
+    // Search text that last found nothing and loaded an older month, null if none
+    private String olderLoadedForText;
+    private TaskQuery olderLoadedForFilter;
+    private final TaskIndex taskIndex = new TaskIndex();
+    private final SearchScheduler searchScheduler = new SearchScheduler();
+    private TaskRepository taskRepository;
+    private boolean refreshScheduled;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -55,6 +75,7 @@ public class MainActivity extends AppCompatActivity {
 
         // Initialize Firebase Helper
         firebaseHelper = new FirebaseHelper(this);
+        taskRepository = TaskRepository.getInstance(this);
         sharedPreferences = getSharedPreferences("TodoAppPrefs", MODE_PRIVATE);
 
         // Check if user is logged in
@@ -74,9 +95,6 @@ public class MainActivity extends AppCompatActivity {
         setupRecyclerView();
         setupSearch();
 
-        // Load Tasks from Firebase
-        loadTasksFromFirebase();
-
         // FAB Click Listener
         fabAddTask.setOnClickListener(v -> {
             startActivity(new Intent(MainActivity.this, AddTaskActivity.class));
@@ -118,14 +136,11 @@ public class MainActivity extends AppCompatActivity {
             int id = item.getItemId();
 
             if (id == R.id.menu_all_tasks) {
-                currentFilter = "All";
-                filterTasks();
+                showStatus("All");
             } else if (id == R.id.menu_pending) {
-                currentFilter = "Pending";
-                filterTasks();
+                showStatus("Pending");
             } else if (id == R.id.menu_completed) {
-                currentFilter = "Completed";
-                filterTasks();
+                showStatus("Completed");
             } else if (id == R.id.menu_logout) {
                 showLogoutDialog();
             }
@@ -136,15 +151,15 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void setupTabs() {
-        tabLayout.addTab(tabLayout.newTab().setText("All"));
-        tabLayout.addTab(tabLayout.newTab().setText("Pending"));
-        tabLayout.addTab(tabLayout.newTab().setText("Completed"));
+        // The tag holds the filter, the text also shows a live count
+        tabLayout.addTab(tabLayout.newTab().setText("All").setTag("All"));
+        tabLayout.addTab(tabLayout.newTab().setText("Pending").setTag("Pending"));
+        tabLayout.addTab(tabLayout.newTab().setText("Completed").setTag("Completed"));
 
         tabLayout.addOnTabSelectedListener(new TabLayout.OnTabSelectedListener() {
             @Override
             public void onTabSelected(TabLayout.Tab tab) {
-                currentFilter = tab.getText().toString();
-                filterTasks();
+                showStatus((String) tab.getTag());
             }
 
             @Override
@@ -158,7 +173,26 @@ public class MainActivity extends AppCompatActivity {
     private void setupRecyclerView() {
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
         taskAdapter = new TaskAdapter(this, new ArrayList<>(), firebaseHelper);
+        taskAdapter.setOnSelectionChangedListener(selectedCount -> {
+            if (getSupportActionBar() != null) {
+                getSupportActionBar().setTitle(selectedCount > 0 ? selectedCount + " selected" : "My Tasks");
+            }
+            invalidateOptionsMenu();
+        });
         recyclerView.setAdapter(taskAdapter);
+        taskPager = new TaskPager(taskAdapter);
+
+        // Only recent months are synced up front; reaching the end of the list, once every
+        // page of it is shown, loads older ones. A list too short to scroll never gets here,
+        // so refreshTasks loads them as well.
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0 && !recyclerView.canScrollVertically(1) && !taskAdapter.hasMore()) {
+                    taskRepository.loadOlderTasks();
+                }
+            }
+        });
     }
 
     private void setupSearch() {
@@ -168,11 +202,8 @@ public class MainActivity extends AppCompatActivity {
 
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                if (s.length() > 0) {
-                    searchTasks(s.toString());
-                } else {
-                    filterTasks();
-                }
+                query = query.withText(s.toString());
+                showTasks();
             }
 
             @Override
@@ -180,50 +211,128 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
-    private void loadTasksFromFirebase() {
-        firebaseHelper.getAllTasks(new FirebaseHelper.OnTasksLoadListener() {
-            @Override
-            public void onTasksLoaded(List<Task> tasks) {
-                allTasks = tasks;
-                filterTasks();
-            }
+    // Repository observer: every change updates the index and schedules a redraw from it
+    private final FirebaseHelper.OnTaskChangeListener taskChangeListener =
+            new FirebaseHelper.OnTaskChangeListener() {
+        @Override
+        public void onTaskAdded(Task task) {
+            taskIndex.put(task);
+            searchScheduler.put(task);
+            scheduleRefresh();
+        }
 
-            @Override
-            public void onError(String error) {
-                Toast.makeText(MainActivity.this,
-                        "Error loading tasks: " + error, Toast.LENGTH_SHORT).show();
-            }
+        @Override
+        public void onTaskChanged(Task task) {
+            taskIndex.put(task);
+            searchScheduler.put(task);
+            scheduleRefresh();
+        }
+
+        @Override
+        public void onTaskRemoved(String firebaseId) {
+            taskIndex.remove(firebaseId);
+            searchScheduler.remove(firebaseId);
+            scheduleRefresh();
+        }
+
+        @Override
+        public void onTaskMoved(String firebaseId, String previousFirebaseId) {}
+
+        @Override
+        public void onError(String error) {
+            Toast.makeText(MainActivity.this,
+                    "Error loading tasks: " + error, Toast.LENGTH_SHORT).show();
+        }
+    };
+
+    // The initial load is one event per task, so redraw once after the burst instead of per event
+    private void scheduleRefresh() {
+        if (refreshScheduled) {
+            return;
+        }
+        refreshScheduled = true;
+        recyclerView.post(() -> {
+            refreshScheduled = false;
+            updateTabCounts();
+            refreshTasks();
         });
     }
 
-    private void filterTasks() {
-        List<Task> filteredTasks = new ArrayList<>();
+    // Bucket sizes, kept by the index
+    private void updateTabCounts() {
+        setTabCount(0, "All", taskIndex.size());
+        setTabCount(1, "Pending", taskIndex.countByStatus("Pending"));
+        setTabCount(2, "Completed", taskIndex.countByStatus("Completed"));
+    }
 
-        if (currentFilter.equals("All")) {
-            filteredTasks = new ArrayList<>(allTasks);
-        } else {
-            for (Task task : allTasks) {
-                if (task.getStatus().equals(currentFilter)) {
-                    filteredTasks.add(task);
-                }
-            }
+    private void setTabCount(int position, String label, int count) {
+        TabLayout.Tab tab = tabLayout.getTabAt(position);
+        if (tab != null) {
+            tab.setText(label + " (" + count + ")");
         }
+    }
 
-        taskAdapter.updateTasks(filteredTasks);
+    // The tabs and drawer show "All" or a status
+    private void showStatus(String tab) {
+        query = query.withStatus(tab.equals("All") ? null : tab);
+        showTasks();
     }
 
-    private void searchTasks(String query) {
-        List<Task> searchResults = new ArrayList<>();
-        query = query.toLowerCase();
+    // Status and priority come straight from the index's buckets, and search text from the
+    // trigram index on the scheduler's thread, debounced so only the latest text is shown.
+    // The rest of the query runs in one pass on TaskListUpdater's thread, a page at a time.
+    private void showTasks() {
+        taskPager.reset();
+        refreshTasks();
+    }
 
-        for (Task task : allTasks) {
-            if (task.getTitle().toLowerCase().contains(query) ||
-                    task.getDescription().toLowerCase().contains(query)) {
-                searchResults.add(task);
-            }
+    // Like showTasks for the same query, keeping the pages already shown
+    private void refreshTasks() {
+        TaskQuery shown = query;
+        if (shown.getText().isEmpty()) {
+            olderLoadedForText = null;
+            searchScheduler.cancel();
+            taskPager.submit(taskIndex.view(shown.getStatus(), shown.getPriority()),
+                    shown.withStatus(null).withPriority(null), count -> loadOlderIfListFits(shown));
+            return;
         }
+        searchScheduler.search(shown.getText(), (searched, results) -> {
+            if (results.isEmpty()) {
+                loadOlderForSearch(searched);
+            }
+            taskPager.submit(results, shown.withText(""), null);
+        });
+    }
 
-        taskAdapter.updateTasks(searchResults);
+    // Keeps loading older months, one per update, until the list fills the screen or there
+    // are no more, as scrolling to the end would. Not used for searches, which have their own
+    // limit. Checked after the new rows are laid out. A filtered list can stay short however
+    // many months are loaded, so it gets one older month per filter, not the whole history.
+    private void loadOlderIfListFits(TaskQuery shown) {
+        recyclerView.post(() -> {
+            if (recyclerView.canScrollVertically(1)) {
+                return;
+            }
+            if (shown.isFiltered()) {
+                if (olderLoadedForFilter != null && olderLoadedForFilter.hasSameFilter(shown)) {
+                    return;
+                }
+                olderLoadedForFilter = shown;
+            }
+            taskRepository.loadOlderTasks();
+        });
+    }
+
+    // The match may be in a month not loaded yet, so one older month is loaded. Only once
+    // per text, and not again while the text extends it: each loaded task re-runs the
+    // search, and a typo must not walk back through the whole history.
+    private void loadOlderForSearch(String text) {
+        String normalized = text.toLowerCase(Locale.ROOT);
+        if (olderLoadedForText != null && normalized.startsWith(olderLoadedForText)) {
+            return;
+        }
+        olderLoadedForText = normalized;
+        taskRepository.loadOlderTasks();
     }
 
     private void showFilterMenu(View view) {
@@ -231,14 +340,106 @@ public class MainActivity extends AppCompatActivity {
         popup.getMenuInflater().inflate(R.menu.filter_menu, popup.getMenu());
 
         popup.setOnMenuItemClickListener(item -> {
-            Toast.makeText(MainActivity.this,
-                    "Filter: " + item.getTitle(), Toast.LENGTH_SHORT).show();
+            int id = item.getItemId();
+            long[] range;
+
+            if (id == R.id.filter_today) {
+                long today = DueDates.today();
+                range = new long[]{today, today};
+            } else if (id == R.id.filter_week) {
+                range = DueDates.thisWeek();
+            } else if (id == R.id.filter_month) {
+                range = DueDates.thisMonth();
+            } else if (id == R.id.sort_due_date || id == R.id.sort_priority) {
+                TaskQuery.Sort sort = id == R.id.sort_due_date ? TaskQuery.Sort.DUE_DATE : TaskQuery.Sort.PRIORITY;
+                // Picking the active sort again goes back to creation order
+                query = query.sortedBy(sort == query.getSort() ? TaskQuery.Sort.CREATED : sort);
+                showTasks();
+                return true;
+            } else {
+                String priority = id == R.id.filter_high_priority ? "High"
+                        : id == R.id.filter_medium_priority ? "Medium" : "Low";
+                // Picking the active priority again turns it off
+                query = query.withPriority(priority.equals(query.getPriority()) ? null : priority);
+                showTasks();
+                return true;
+            }
+
+            // Picking the active date filter again turns it off
+            query = query.withDueDayRange(query.hasDueDayRange(range) ? null : range);
+            showTasks();
             return true;
         });
 
         popup.show();
     }
 
+    // ==================== BULK ACTIONS ====================
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        if (taskAdapter != null && !taskAdapter.getSelectedTaskIds().isEmpty()) {
+            getMenuInflater().inflate(R.menu.selection_menu, menu);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        int id = item.getItemId();
+        List<String> selected = taskAdapter.getSelectedTaskIds();
+
+        if (id == R.id.action_complete_selected) {
+            showBulkResult(taskRepository.updateTasksStatus(selected, "Completed"),
+                    selected.size() + " tasks completed");
+            return true;
+        } else if (id == R.id.action_delete_selected) {
+            showBulkDeleteDialog(selected);
+            return true;
+        } else if (id == R.id.action_reassign_selected) {
+            showReassignDialog(selected);
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    private void showBulkDeleteDialog(List<String> selected) {
+        new AlertDialog.Builder(this)
+                .setTitle("Delete Tasks")
+                .setMessage("Are you sure you want to delete " + selected.size() + " tasks?")
+                .setPositiveButton("Delete", (dialog, which) -> showBulkResult(
+                        taskRepository.deleteTasks(selected), selected.size() + " tasks deleted"))
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void showReassignDialog(List<String> selected) {
+        EditText assigneeEditText = new EditText(this);
+        assigneeEditText.setHint("Assign to");
+
+        new AlertDialog.Builder(this)
+                .setTitle("Reassign " + selected.size() + " Tasks")
+                .setView(assigneeEditText)
+                .setPositiveButton("Reassign", (dialog, which) -> {
+                    String assignedTo = assigneeEditText.getText().toString().trim();
+                    showBulkResult(taskRepository.reassignTasks(selected, assignedTo),
+                            selected.size() + " tasks reassigned");
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    // The repository shows the change at once and queues one outbox write for the whole
+    // batch, so one message covers it. A write the server later refuses is rolled back.
+    private void showBulkResult(boolean queued, String successMessage) {
+        if (!queued) {
+            Toast.makeText(this, "Failed to save changes", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        taskAdapter.clearSelection();
+        Toast.makeText(this, successMessage, Toast.LENGTH_SHORT).show();
+    }
+
     private void showLogoutDialog() {
         new AlertDialog.Builder(this)
                 .setTitle("Logout")
@@ -250,6 +451,7 @@ public class MainActivity extends AppCompatActivity {
 
     private void logout() {
         firebaseHelper.logout();
+        taskRepository.clearPendingWrites();
 
         SharedPreferences.Editor editor = sharedPreferences.edit();
         editor.clear();
@@ -269,6 +471,8 @@ public class MainActivity extends AppCompatActivity {
             public void handleOnBackPressed() {
                 if (drawerLayout.isDrawerOpen(navigationView)) {
                     drawerLayout.closeDrawers();
+                } else if (!taskAdapter.getSelectedTaskIds().isEmpty()) {
+                    taskAdapter.clearSelection();
                 } else {
                     showExitDialog();
                 }
@@ -287,9 +491,27 @@ public class MainActivity extends AppCompatActivity {
                 .show();
     }
 
+    // Tasks are observed only while the screen is visible; the repository keeps a single
+    // Firebase listener no matter how many times this runs
+    @Override
+    protected void onStart() {
+        super.onStart();
+        if (taskAdapter != null) {
+            // addObserver sends every current task again; starting empty drops any removed while stopped
+            taskIndex.clear();
+            searchScheduler.clear();
+            taskRepository.addObserver(taskChangeListener);
+            // Resume sending writes left in the outbox by an earlier session
+            Outbox.getInstance(this).flush();
+        }
+    }
+
     @Override
-    protected void onResume() {
-        super.onResume();
-        loadTasksFromFirebase();
+    protected void onStop() {
+        super.onStop();
+        taskRepository.removeObserver(taskChangeListener);
+        Log.d(TAG, "Searches: " + searchScheduler.getCompletedCount() + " completed, "
+                + searchScheduler.getSkippedCount() + " skipped while typing, "
+                + searchScheduler.getCancelledCount() + " cancelled");
     }
 }
@@ -11,24 +11,42 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.cardview.widget.CardView;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.searchbar.aii.R;
 import com.searchbar.aii.models.Task;
 import com.searchbar.aii.utils.FirebaseHelper;
+import com.searchbar.aii.utils.TaskRepository;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
 public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder> {
 
+    // Ask for the next page when this many rows are left below the one being bound
+    private static final int LOAD_MORE_THRESHOLD = 10;
+
     private Context context;
     private List<Task> tasks;
     private FirebaseHelper firebaseHelper;
+    private TaskRepository taskRepository;
+    private OnLoadMoreListener onLoadMoreListener;
+    private boolean hasMore;
+    private boolean loadingMore;
+    // Firebase ids of the tasks picked for a bulk action, in the order they were picked
+    private final Set<String> selectedTaskIds = new LinkedHashSet<>();
+    private OnSelectionChangedListener onSelectionChangedListener;
 
     public TaskAdapter(Context context, List<Task> tasks, FirebaseHelper firebaseHelper) {
         this.context = context;
         this.tasks = tasks;
         this.firebaseHelper = firebaseHelper;
+        this.taskRepository = TaskRepository.getInstance(context);
     }
 
     @NonNull
@@ -42,6 +60,14 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
     public void onBindViewHolder(@NonNull TaskViewHolder holder, int position) {
         Task task = tasks.get(position);
 
+        // Paged lists: fetch the next page before the user reaches the end
+        if (onLoadMoreListener != null && hasMore && !loadingMore
+                && position >= tasks.size() - LOAD_MORE_THRESHOLD) {
+            loadingMore = true;
+            // The adapter can't be changed during a layout pass, so request after it
+            holder.itemView.post(() -> onLoadMoreListener.onLoadMore());
+        }
+
         // Bind data to views
         holder.titleTextView.setText(task.getTitle());
         holder.descriptionTextView.setText(task.getDescription());
@@ -65,6 +91,16 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
                 break;
         }
 
+        // Selected tasks are highlighted; long press starts a selection, taps extend it
+        ((CardView) holder.itemView).setCardBackgroundColor(context.getResources().getColor(
+                selectedTaskIds.contains(task.getFirebaseId()) ? R.color.selected_task : R.color.white));
+        holder.itemView.setOnLongClickListener(v -> toggleSelection(holder));
+        holder.itemView.setOnClickListener(v -> {
+            if (!selectedTaskIds.isEmpty()) {
+                toggleSelection(holder);
+            }
+        });
+
         // ✅ FIXED: Remove previous listeners to prevent duplicates
         holder.statusCheckBox.setOnCheckedChangeListener(null);
 
@@ -77,23 +113,12 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
             if (adapterPosition != RecyclerView.NO_POSITION) {
                 Task currentTask = tasks.get(adapterPosition);
                 String status = isChecked ? "Completed" : "Pending";
-                currentTask.setStatus(status);
-
-                // Update in Firebase
-                if (currentTask.getFirebaseId() != null) {
-                    firebaseHelper.updateTaskStatus(currentTask.getFirebaseId(), status,
-                            new FirebaseHelper.OnTaskCompleteListener() {
-                                @Override
-                                public void onSuccess() {
-                                    Toast.makeText(context, "Status updated", Toast.LENGTH_SHORT).show();
-                                }
-
-                                @Override
-                                public void onFailure(String error) {
-                                    Toast.makeText(context, "Failed to update: " + error,
-                                            Toast.LENGTH_SHORT).show();
-                                }
-                            });
+
+                // Shown at once by the repository and sent to Firebase in the background;
+                // if it can't be queued the repository puts the old status back
+                if (currentTask.getFirebaseId() != null
+                        && !taskRepository.updateTaskStatus(currentTask.getFirebaseId(), status)) {
+                    Toast.makeText(context, "Failed to update status", Toast.LENGTH_SHORT).show();
                 }
             }
         });
@@ -103,38 +128,45 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
             int adapterPosition = holder.getBindingAdapterPosition();
             if (adapterPosition != RecyclerView.NO_POSITION) {
                 Task currentTask = tasks.get(adapterPosition);
-                showDeleteDialog(currentTask, adapterPosition);
+                showDeleteDialog(currentTask);
             }
         });
     }
 
-    private void showDeleteDialog(Task task, int position) {
+    private boolean toggleSelection(TaskViewHolder holder) {
+        int adapterPosition = holder.getBindingAdapterPosition();
+        if (adapterPosition == RecyclerView.NO_POSITION) {
+            return false;
+        }
+        String firebaseId = tasks.get(adapterPosition).getFirebaseId();
+        if (firebaseId == null) {
+            return false;
+        }
+
+        if (!selectedTaskIds.remove(firebaseId)) {
+            selectedTaskIds.add(firebaseId);
+        }
+        notifyItemChanged(adapterPosition);
+        if (onSelectionChangedListener != null) {
+            onSelectionChangedListener.onSelectionChanged(selectedTaskIds.size());
+        }
+        return true;
+    }
+
+    private void showDeleteDialog(Task task) {
         new AlertDialog.Builder(context)
                 .setTitle("Delete Task")
                 .setMessage("Are you sure you want to delete this task?")
                 .setPositiveButton("Delete", (dialog, which) -> {
-                    if (task.getFirebaseId() != null) {
-                        firebaseHelper.deleteTask(task.getFirebaseId(),
-                                new FirebaseHelper.OnTaskCompleteListener() {
-                                    @Override
-                                    public void onSuccess() {
-                                        // ✅ Check if position is still valid before removing
-                                        if (position >= 0 && position < tasks.size()) {
-                                            tasks.remove(position);
-                                            notifyItemRemoved(position);
-                                            notifyItemRangeChanged(position, tasks.size());
-                                        }
-                                        Toast.makeText(context, "Task deleted",
-                                                Toast.LENGTH_SHORT).show();
-                                    }
-
-                                    @Override
-                                    public void onFailure(String error) {
-                                        Toast.makeText(context, "Failed to delete: " + error,
-                                                Toast.LENGTH_SHORT).show();
-                                    }
-                                });
+                    if (task.getFirebaseId() == null) {
+                        return;
+                    }
+                    // The row goes away through the repository's update, not the server's reply
+                    if (!taskRepository.deleteTask(task.getFirebaseId())) {
+                        Toast.makeText(context, "Failed to delete task", Toast.LENGTH_SHORT).show();
+                        return;
                     }
+                    Toast.makeText(context, "Task deleted", Toast.LENGTH_SHORT).show();
                 })
                 .setNegativeButton("Cancel", null)
                 .show();
@@ -146,8 +178,108 @@ public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder
     }
 
     public void updateTasks(List<Task> newTasks) {
+        updateTasks(newTasks, false);
+    }
+
+    // First page of a paged list; hasMore tells the adapter to ask for more while scrolling.
+    // Only the rows that differ are rebound, so an optimistic change or its rollback
+    // animates one row instead of redrawing the list.
+    public void updateTasks(List<Task> newTasks, boolean hasMore) {
+        applyDiff(newTasks, diff(tasks, newTasks), hasMore);
+    }
+
+    // The list currently shown. Treat it as read-only; it is what diff() takes as oldTasks.
+    public List<Task> getTasks() {
+        return tasks;
+    }
+
+    // Touches no adapter state, so it can run off the main thread (see TaskListUpdater)
+    public static DiffUtil.DiffResult diff(List<Task> oldTasks, List<Task> newTasks) {
+        return DiffUtil.calculateDiff(new TaskDiffCallback(oldTasks, newTasks));
+    }
+
+    // Shows newTasks given a diff computed against getTasks()
+    public void applyDiff(List<Task> newTasks, DiffUtil.DiffResult diff, boolean hasMore) {
         this.tasks = newTasks;
+        this.hasMore = hasMore;
+        this.loadingMore = false;
+        diff.dispatchUpdatesTo(this);
+    }
+
+    // Whether the list shown is one page of a longer one
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    // ==================== SELECTION ====================
+
+    public List<String> getSelectedTaskIds() {
+        return new ArrayList<>(selectedTaskIds);
+    }
+
+    public void clearSelection() {
+        if (selectedTaskIds.isEmpty()) {
+            return;
+        }
+        selectedTaskIds.clear();
         notifyDataSetChanged();
+        if (onSelectionChangedListener != null) {
+            onSelectionChangedListener.onSelectionChanged(0);
+        }
+    }
+
+    public void setOnSelectionChangedListener(OnSelectionChangedListener listener) {
+        this.onSelectionChangedListener = listener;
+    }
+
+    public interface OnSelectionChangedListener {
+        void onSelectionChanged(int selectedCount);
+    }
+
+    public void setOnLoadMoreListener(OnLoadMoreListener listener) {
+        this.onLoadMoreListener = listener;
+    }
+
+    public interface OnLoadMoreListener {
+        void onLoadMore();
+    }
+
+    // Same task by Firebase key; same content if every shown field matches
+    private static class TaskDiffCallback extends DiffUtil.Callback {
+        private final List<Task> oldTasks;
+        private final List<Task> newTasks;
+
+        TaskDiffCallback(List<Task> oldTasks, List<Task> newTasks) {
+            this.oldTasks = oldTasks;
+            this.newTasks = newTasks;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldTasks.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newTasks.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldPosition, int newPosition) {
+            return Objects.equals(oldTasks.get(oldPosition).getFirebaseId(),
+                    newTasks.get(newPosition).getFirebaseId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+            Task oldTask = oldTasks.get(oldPosition);
+            Task newTask = newTasks.get(newPosition);
+            return Objects.equals(oldTask.getTitle(), newTask.getTitle())
+                    && Objects.equals(oldTask.getDescription(), newTask.getDescription())
+                    && Objects.equals(oldTask.getDueDate(), newTask.getDueDate())
+                    && Objects.equals(oldTask.getPriority(), newTask.getPriority())
+                    && Objects.equals(oldTask.getStatus(), newTask.getStatus());
+        }
     }
 
     static class TaskViewHolder extends RecyclerView.ViewHolder {
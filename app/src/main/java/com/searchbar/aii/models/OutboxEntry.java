@@ -0,0 +1,31 @@
+package com.searchbar.aii.models;
+
+import java.util.Arrays;
+import java.util.List;
+
+// One queued Firebase write: a JSON object of sub-path to value under path, sent as one
+// multi-path update. A null value deletes its sub-path.
+public class OutboxEntry {
+    private final long id;
+    private final List<String> taskKeys;  // every task the write touches
+    private final String path;
+    private final String value;  // JSON text
+    private final int attempts;
+    private final long nextAttemptAt;
+
+    public OutboxEntry(long id, String taskKeys, String path, String value, int attempts, long nextAttemptAt) {
+        this.id = id;
+        this.taskKeys = Arrays.asList(taskKeys.split(","));
+        this.path = path;
+        this.value = value;
+        this.attempts = attempts;
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public long getId() { return id; }
+    public List<String> getTaskKeys() { return taskKeys; }
+    public String getPath() { return path; }
+    public String getValue() { return value; }
+    public int getAttempts() { return attempts; }
+    public long getNextAttemptAt() { return nextAttemptAt; }
+}
@@ -6,11 +6,14 @@ public class Task {
     private String title;
     private String description;
     private String dueDate;
+    private Long dueDay;  // epoch day of dueDate, null when there is no due date
     private String priority;
     private String status;
     private String assignedTo;
     private int userId;
     private long createdAt;
+    private Long updatedAt;  // server time of the last write, null on tasks written before it existed
+    private boolean deleted;  // tombstone left by a delete so other devices can sync it
 
     // Empty constructor (Firebase ke liye zaroori)
     public Task() {}
@@ -44,6 +47,9 @@ public class Task {
     public String getDueDate() { return dueDate; }
     public void setDueDate(String dueDate) { this.dueDate = dueDate; }
 
+    public Long getDueDay() { return dueDay; }
+    public void setDueDay(Long dueDay) { this.dueDay = dueDay; }
+
     public String getPriority() { return priority; }
     public void setPriority(String priority) { this.priority = priority; }
 
@@ -58,4 +64,10 @@ public class Task {
 
     public long getCreatedAt() { return createdAt; }
     public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
+
+    public Long getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Long updatedAt) { this.updatedAt = updatedAt; }
+
+    public boolean isDeleted() { return deleted; }
+    public void setDeleted(boolean deleted) { this.deleted = deleted; }
 }
\ No newline at end of file
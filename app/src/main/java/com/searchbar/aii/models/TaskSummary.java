@@ -0,0 +1,38 @@
+package com.searchbar.aii.models;
+
+// Compact row for the task list: no full description, just a short preview of it.
+// Load the full Task by id only when the user opens one.
+public class TaskSummary {
+    private final int id;
+    private final String title;
+    private final String descriptionPreview;
+    private final String dueDate;
+    private final String priority;
+    private final String status;
+    private final long createdAt;
+
+    public TaskSummary(int id, String title, String descriptionPreview, String dueDate,
+                       String priority, String status, long createdAt) {
+        this.id = id;
+        this.title = title;
+        this.descriptionPreview = descriptionPreview;
+        this.dueDate = dueDate;
+        this.priority = priority;
+        this.status = status;
+        this.createdAt = createdAt;
+    }
+
+    public int getId() { return id; }
+
+    public String getTitle() { return title; }
+
+    public String getDescriptionPreview() { return descriptionPreview; }
+
+    public String getDueDate() { return dueDate; }
+
+    public String getPriority() { return priority; }
+
+    public String getStatus() { return status; }
+
+    public long getCreatedAt() { return createdAt; }
+}
@@ -0,0 +1,54 @@
+package com.searchbar.aii.utils;
+
+import android.database.Cursor;
+import com.searchbar.aii.models.Task;
+import java.io.Closeable;
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Read-only List<Task> over an open query Cursor. Rows stay in the cursor's window and are
+// turned into Task objects only when get() asks for them, with a small LRU of recent ones,
+// so a RecyclerView over 100k tasks only ever holds Task objects for the rows near the screen.
+// Not thread-safe: use it from the thread that binds the views, and close() it when replaced.
+public class CursorTaskList extends AbstractList<Task> implements Closeable {
+    private static final int CACHE_SIZE = 64;
+
+    private final Cursor cursor;
+    private final int size;
+    private final Map<Integer, Task> recent = new LinkedHashMap<Integer, Task>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Task> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    CursorTaskList(Cursor cursor) {
+        this.cursor = cursor;
+        this.size = cursor.getCount();
+    }
+
+    @Override
+    public Task get(int index) {
+        Task task = recent.get(index);
+        if (task == null) {
+            if (!cursor.moveToPosition(index)) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            task = DatabaseHelper.cursorToTask(cursor);
+            recent.put(index, task);
+        }
+        return task;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void close() {
+        recent.clear();
+        cursor.close();
+    }
+}
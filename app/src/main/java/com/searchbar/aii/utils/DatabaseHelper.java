@@ -3,16 +3,27 @@ package com.searchbar.aii.utils;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.text.TextUtils;
+import com.searchbar.aii.models.OutboxEntry;
 import com.searchbar.aii.models.Task;
+import com.searchbar.aii.models.TaskSummary;
 import com.searchbar.aii.models.User;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String DATABASE_NAME = "TodoListDB";
-    private static final int DATABASE_VERSION = 1;
+    private static final int DATABASE_VERSION = 6;
 
     // User Table
     private static final String TABLE_USERS = "users";
@@ -32,9 +43,96 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String COL_ASSIGNED_TO = "assigned_to";
     private static final String COL_USER_ID_FK = "user_id";
     private static final String COL_CREATED_AT = "created_at";
+    private static final String COL_DUE_DAY = "due_day";
 
-    public DatabaseHelper(Context context) {
+    // Task Indexes - column order matches the WHERE ... ORDER BY created_at DESC query shapes
+    private static final String INDEX_TASKS_USER_CREATED = "idx_tasks_user_created";
+    private static final String INDEX_TASKS_USER_STATUS_CREATED = "idx_tasks_user_status_created";
+    private static final String INDEX_TASKS_USER_DUE_DAY = "idx_tasks_user_due_day";
+
+    // Full-text index over title and description, content stored in the tasks table itself
+    private static final String TABLE_TASKS_FTS = "tasks_fts";
+
+    // Outbox of Firebase writes not yet acknowledged by the server, drained in id order
+    private static final String TABLE_OUTBOX = "outbox";
+    private static final String COL_OUTBOX_ID = "id";
+    private static final String COL_OUTBOX_TASK_KEYS = "task_keys";
+    private static final String COL_OUTBOX_PATH = "path";
+    private static final String COL_OUTBOX_VALUE = "value";
+    private static final String COL_OUTBOX_ATTEMPTS = "attempts";
+    private static final String COL_OUTBOX_NEXT_ATTEMPT_AT = "next_attempt_at";
+    private static final String COL_OUTBOX_CREATED_AT = "created_at";
+
+    // Local copy of each user's Firebase tasks, so a cold start only fetches what changed
+    // since the newest updated_at stored here. Deleted tasks stay as tombstone rows.
+    private static final String TABLE_SYNCED_TASKS = "synced_tasks";
+    private static final String COL_SYNCED_OWNER = "owner";
+    private static final String COL_SYNCED_FIREBASE_ID = "firebase_id";
+    private static final String COL_SYNCED_UPDATED_AT = "updated_at";
+    private static final String COL_SYNCED_DELETED = "deleted";
+    private static final String COL_SYNCED_DATA = "data";
+    private static final String INDEX_SYNCED_TASKS_OWNER_UPDATED = "idx_synced_tasks_owner_updated";
+
+    // Hot write paths, compiled once and reused for the lifetime of the connection
+    private static final String SQL_INSERT_TASK = "INSERT INTO " + TABLE_TASKS + "("
+            + COL_TITLE + "," + COL_DESCRIPTION + "," + COL_DUE_DATE + ","
+            + COL_PRIORITY + "," + COL_STATUS + "," + COL_ASSIGNED_TO + ","
+            + COL_USER_ID_FK + "," + COL_CREATED_AT + "," + COL_DUE_DAY + ") VALUES (?,?,?,?,?,?,?,?,?)";
+    private static final String SQL_INSERT_TASK_WITH_ID = "INSERT INTO " + TABLE_TASKS + "("
+            + COL_TITLE + "," + COL_DESCRIPTION + "," + COL_DUE_DATE + ","
+            + COL_PRIORITY + "," + COL_STATUS + "," + COL_ASSIGNED_TO + ","
+            + COL_USER_ID_FK + "," + COL_CREATED_AT + "," + COL_DUE_DAY + "," + COL_TASK_ID
+            + ") VALUES (?,?,?,?,?,?,?,?,?,?)";
+    private static final String SQL_REPLACE_TASK = "UPDATE " + TABLE_TASKS + " SET "
+            + COL_TITLE + "=?," + COL_DESCRIPTION + "=?," + COL_DUE_DATE + "=?,"
+            + COL_PRIORITY + "=?," + COL_STATUS + "=?," + COL_ASSIGNED_TO + "=?,"
+            + COL_USER_ID_FK + "=?," + COL_CREATED_AT + "=?," + COL_DUE_DAY + "=? WHERE " + COL_TASK_ID + "=?";
+    private static final String SQL_UPDATE_TASK_STATUS = "UPDATE " + TABLE_TASKS
+            + " SET " + COL_STATUS + "=? WHERE " + COL_TASK_ID + "=?";
+    private static final String SQL_INSERT_OUTBOX = "INSERT INTO " + TABLE_OUTBOX + "("
+            + COL_OUTBOX_TASK_KEYS + "," + COL_OUTBOX_PATH + "," + COL_OUTBOX_VALUE + ","
+            + COL_OUTBOX_CREATED_AT + ") VALUES (?,?,?,?)";
+    private static final String SQL_DELETE_OUTBOX = "DELETE FROM " + TABLE_OUTBOX
+            + " WHERE " + COL_OUTBOX_ID + "=?";
+    private static final String SQL_RESCHEDULE_OUTBOX = "UPDATE " + TABLE_OUTBOX + " SET "
+            + COL_OUTBOX_ATTEMPTS + "=" + COL_OUTBOX_ATTEMPTS + "+1," + COL_OUTBOX_NEXT_ATTEMPT_AT + "=?"
+            + " WHERE " + COL_OUTBOX_ID + "=?";
+    private static final String SQL_SAVE_SYNCED_TASK = "INSERT OR REPLACE INTO " + TABLE_SYNCED_TASKS + "("
+            + COL_SYNCED_OWNER + "," + COL_SYNCED_FIREBASE_ID + "," + COL_SYNCED_UPDATED_AT + ","
+            + COL_SYNCED_DELETED + "," + COL_SYNCED_DATA + ") VALUES (?,?,?,?,?)";
+    private static final String SQL_DELETE_SYNCED_TASK = "DELETE FROM " + TABLE_SYNCED_TASKS
+            + " WHERE " + COL_SYNCED_OWNER + "=? AND " + COL_SYNCED_FIREBASE_ID + "=?";
+    private static final String SQL_DELETE_TASK = "DELETE FROM " + TABLE_TASKS
+            + " WHERE " + COL_TASK_ID + "=?";
+
+    // List rows only show the start of the description, so only that much is read from disk
+    private static final int DESCRIPTION_PREVIEW_LENGTH = 120;
+    private static final String[] SUMMARY_COLUMNS = {
+            COL_TASK_ID, COL_TITLE,
+            "substr(" + COL_DESCRIPTION + ", 1, " + DESCRIPTION_PREVIEW_LENGTH + ") AS " + COL_DESCRIPTION,
+            COL_DUE_DATE, COL_PRIORITY, COL_STATUS, COL_CREATED_AT};
+
+    // Bulk writes commit every BULK_CHUNK_SIZE rows so other writers aren't blocked for long
+    private static final int BULK_CHUNK_SIZE = 500;
+
+    private static DatabaseHelper instance;
+
+    // Guards the cached statements; SQLite only allows one writer at a time anyway
+    private final Object writeLock = new Object();
+    private final Map<String, SQLiteStatement> statementCache = new HashMap<>();
+
+    // One connection for the whole app - use this instead of creating helpers per screen
+    public static synchronized DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new DatabaseHelper(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    DatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // WAL lets readers run while a write is in progress
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
@@ -58,13 +156,124 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
         db.execSQL(createUsersTable);
         db.execSQL(createTasksTable);
+
+        // Version 1 is the base schema, everything after it is applied as a migration
+        onUpgrade(db, 1, DATABASE_VERSION);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_USERS);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_TASKS);
-        onCreate(db);
+        // Migrations run one version at a time inside the open helper's transaction,
+        // so user data is kept and a failed step leaves the old schema untouched
+        for (int version = oldVersion + 1; version <= newVersion; version++) {
+            migrateTo(db, version);
+        }
+    }
+
+    // ==================== MIGRATIONS ====================
+
+    private void migrateTo(SQLiteDatabase db, int version) {
+        switch (version) {
+            case 2:
+                migrateToV2(db);
+                break;
+            case 3:
+                migrateToV3(db);
+                break;
+            case 4:
+                migrateToV4(db);
+                break;
+            case 5:
+                migrateToV5(db);
+                break;
+            case 6:
+                migrateToV6(db);
+                break;
+            default:
+                throw new IllegalStateException("No migration to database version " + version);
+        }
+    }
+
+    // v2: composite indexes for getAllTasks and getTasksByStatus
+    private void migrateToV2(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_TASKS_USER_CREATED + " ON "
+                + TABLE_TASKS + "(" + COL_USER_ID_FK + "," + COL_CREATED_AT + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_TASKS_USER_STATUS_CREATED + " ON "
+                + TABLE_TASKS + "(" + COL_USER_ID_FK + "," + COL_STATUS + "," + COL_CREATED_AT + ")");
+    }
+
+    // v3: FTS4 shadow table for searchTasks, kept in sync by triggers. unicode61 folds case
+    // and accents beyond ASCII, so "arger" finds "Ärger"; the default tokenizer would not.
+    private void migrateToV3(SQLiteDatabase db) {
+        db.execSQL("CREATE VIRTUAL TABLE " + TABLE_TASKS_FTS + " USING fts4(content=\""
+                + TABLE_TASKS + "\", " + COL_TITLE + ", " + COL_DESCRIPTION + ", tokenize=unicode61)");
+
+        // Status toggles don't touch the text columns, so only re-index on title/description changes
+        db.execSQL("CREATE TRIGGER tasks_fts_before_update BEFORE UPDATE OF "
+                + COL_TITLE + ", " + COL_DESCRIPTION + " ON " + TABLE_TASKS + " BEGIN "
+                + "DELETE FROM " + TABLE_TASKS_FTS + " WHERE docid = old.rowid; END");
+        db.execSQL("CREATE TRIGGER tasks_fts_before_delete BEFORE DELETE ON " + TABLE_TASKS + " BEGIN "
+                + "DELETE FROM " + TABLE_TASKS_FTS + " WHERE docid = old.rowid; END");
+        db.execSQL("CREATE TRIGGER tasks_fts_after_update AFTER UPDATE OF "
+                + COL_TITLE + ", " + COL_DESCRIPTION + " ON " + TABLE_TASKS + " BEGIN "
+                + "INSERT INTO " + TABLE_TASKS_FTS + "(docid, " + COL_TITLE + ", " + COL_DESCRIPTION + ")"
+                + " VALUES (new.rowid, new." + COL_TITLE + ", new." + COL_DESCRIPTION + "); END");
+        db.execSQL("CREATE TRIGGER tasks_fts_after_insert AFTER INSERT ON " + TABLE_TASKS + " BEGIN "
+                + "INSERT INTO " + TABLE_TASKS_FTS + "(docid, " + COL_TITLE + ", " + COL_DESCRIPTION + ")"
+                + " VALUES (new.rowid, new." + COL_TITLE + ", new." + COL_DESCRIPTION + "); END");
+
+        // Index the tasks that already exist
+        db.execSQL("INSERT INTO " + TABLE_TASKS_FTS + "(" + TABLE_TASKS_FTS + ") VALUES ('rebuild')");
+    }
+
+    // v4: integer due_day next to the free-form due_date text, backfilled from it
+    private void migrateToV4(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + TABLE_TASKS + " ADD COLUMN " + COL_DUE_DAY + " INTEGER");
+
+        SQLiteStatement update = db.compileStatement("UPDATE " + TABLE_TASKS + " SET "
+                + COL_DUE_DAY + "=? WHERE " + COL_TASK_ID + "=?");
+        Cursor cursor = db.query(TABLE_TASKS, new String[]{COL_TASK_ID, COL_DUE_DATE},
+                COL_DUE_DATE + " IS NOT NULL", null, null, null, null);
+        while (cursor.moveToNext()) {
+            Long dueDay = DueDates.parse(cursor.getString(1));
+            if (dueDay != null) {
+                update.bindLong(1, dueDay);
+                update.bindLong(2, cursor.getLong(0));
+                update.executeUpdateDelete();
+            }
+        }
+        cursor.close();
+        update.close();
+
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_TASKS_USER_DUE_DAY + " ON "
+                + TABLE_TASKS + "(" + COL_USER_ID_FK + "," + COL_DUE_DAY + ")");
+    }
+
+    // v5: outbox table for Firebase writes. A row holds a whole write, so the flusher can't
+    // send or retry part of one: value is an object of sub-path to value under path, and
+    // task_keys lists every task it touches.
+    private void migrateToV5(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_OUTBOX + "("
+                + COL_OUTBOX_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + COL_OUTBOX_TASK_KEYS + " TEXT NOT NULL,"
+                + COL_OUTBOX_PATH + " TEXT NOT NULL,"
+                + COL_OUTBOX_VALUE + " TEXT,"
+                + COL_OUTBOX_ATTEMPTS + " INTEGER NOT NULL DEFAULT 0,"
+                + COL_OUTBOX_NEXT_ATTEMPT_AT + " INTEGER NOT NULL DEFAULT 0,"
+                + COL_OUTBOX_CREATED_AT + " INTEGER)");
+    }
+
+    // v6: local copy of Firebase tasks for delta sync
+    private void migrateToV6(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_SYNCED_TASKS + "("
+                + COL_SYNCED_OWNER + " TEXT NOT NULL,"
+                + COL_SYNCED_FIREBASE_ID + " TEXT NOT NULL,"
+                + COL_SYNCED_UPDATED_AT + " INTEGER,"
+                + COL_SYNCED_DELETED + " INTEGER NOT NULL DEFAULT 0,"
+                + COL_SYNCED_DATA + " TEXT,"
+                + "PRIMARY KEY(" + COL_SYNCED_OWNER + "," + COL_SYNCED_FIREBASE_ID + "))");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_SYNCED_TASKS_OWNER_UPDATED + " ON "
+                + TABLE_SYNCED_TASKS + "(" + COL_SYNCED_OWNER + "," + COL_SYNCED_UPDATED_AT + ")");
     }
 
     // ==================== USER METHODS ====================
@@ -77,7 +286,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put(COL_PASSWORD, user.getPassword());
 
         long result = db.insert(TABLE_USERS, null, values);
-        db.close();
         return result != -1;
     }
 
@@ -96,27 +304,87 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             user.setPassword(cursor.getString(3));
         }
         cursor.close();
-        db.close();
         return user;
     }
 
     // ==================== TASK METHODS ====================
 
     public boolean addTask(Task task) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(COL_TITLE, task.getTitle());
-        values.put(COL_DESCRIPTION, task.getDescription());
-        values.put(COL_DUE_DATE, task.getDueDate());
-        values.put(COL_PRIORITY, task.getPriority());
-        values.put(COL_STATUS, task.getStatus());
-        values.put(COL_ASSIGNED_TO, task.getAssignedTo());
-        values.put(COL_USER_ID_FK, task.getUserId());
-        values.put(COL_CREATED_AT, task.getCreatedAt());
+        return insertTask(task) != -1;
+    }
 
-        long result = db.insert(TABLE_TASKS, null, values);
-        db.close();
-        return result != -1;
+    // Same as addTask but returns the new row id (-1 on failure)
+    public long insertTask(Task task) {
+        synchronized (writeLock) {
+            SQLiteStatement statement = getStatement(SQL_INSERT_TASK);
+            bindTask(statement, task);
+            return statement.executeInsert();
+        }
+    }
+
+    // Inserts all tasks, returning the new row id for each one in order (-1 if that row failed)
+    public long[] addTasks(Collection<Task> tasks) {
+        long[] results = new long[tasks.size()];
+        synchronized (writeLock) {
+            SQLiteDatabase db = getWritableDatabase();
+            SQLiteStatement insert = getStatement(SQL_INSERT_TASK);
+            Iterator<Task> iterator = tasks.iterator();
+            int index = 0;
+            while (iterator.hasNext()) {
+                db.beginTransactionNonExclusive();
+                try {
+                    for (int i = 0; i < BULK_CHUNK_SIZE && iterator.hasNext(); i++, index++) {
+                        bindTask(insert, iterator.next());
+                        results[index] = executeInsertOrFail(insert);
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+        }
+        return results;
+    }
+
+    // Updates tasks that already have a local id and inserts the rest, returning each row id (-1 on failure)
+    public long[] upsertTasks(Collection<Task> tasks) {
+        long[] results = new long[tasks.size()];
+        synchronized (writeLock) {
+            SQLiteDatabase db = getWritableDatabase();
+            SQLiteStatement insert = getStatement(SQL_INSERT_TASK);
+            SQLiteStatement insertWithId = getStatement(SQL_INSERT_TASK_WITH_ID);
+            SQLiteStatement replace = getStatement(SQL_REPLACE_TASK);
+            Iterator<Task> iterator = tasks.iterator();
+            int index = 0;
+            while (iterator.hasNext()) {
+                db.beginTransactionNonExclusive();
+                try {
+                    for (int i = 0; i < BULK_CHUNK_SIZE && iterator.hasNext(); i++, index++) {
+                        Task task = iterator.next();
+                        if (task.getId() <= 0) {
+                            bindTask(insert, task);
+                            results[index] = executeInsertOrFail(insert);
+                            continue;
+                        }
+                        // UPDATE then INSERT rather than INSERT OR REPLACE, which would
+                        // skip the FTS delete trigger
+                        bindTask(replace, task);
+                        replace.bindLong(10, task.getId());
+                        if (replace.executeUpdateDelete() > 0) {
+                            results[index] = task.getId();
+                        } else {
+                            bindTask(insertWithId, task);
+                            insertWithId.bindLong(10, task.getId());
+                            results[index] = executeInsertOrFail(insertWithId);
+                        }
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+        }
+        return results;
     }
 
     public List<Task> getAllTasks(int userId) {
@@ -124,7 +392,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = db.query(TABLE_TASKS, null, COL_USER_ID_FK + "=?",
                 new String[]{String.valueOf(userId)}, null, null,
-                COL_CREATED_AT + " DESC");
+                COL_CREATED_AT + " DESC, " + COL_TASK_ID + " DESC");
 
         if (cursor.moveToFirst()) {
             do {
@@ -133,7 +401,6 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             } while (cursor.moveToNext());
         }
         cursor.close();
-        db.close();
         return taskList;
     }
 
@@ -143,7 +410,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         Cursor cursor = db.query(TABLE_TASKS, null,
                 COL_USER_ID_FK + "=? AND " + COL_STATUS + "=?",
                 new String[]{String.valueOf(userId), status}, null, null,
-                COL_CREATED_AT + " DESC");
+                COL_CREATED_AT + " DESC, " + COL_TASK_ID + " DESC");
 
         if (cursor.moveToFirst()) {
             do {
@@ -152,18 +419,55 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             } while (cursor.moveToNext());
         }
         cursor.close();
-        db.close();
         return taskList;
     }
 
+    // Prefix search on words in title/description, title matches first then newest
     public List<Task> searchTasks(int userId, String query) {
+        List<String> terms = toSearchTerms(query);
+        if (terms.isEmpty()) {
+            return getAllTasks(userId);
+        }
+
+        StringBuilder anyColumn = new StringBuilder();
+        StringBuilder titleOnly = new StringBuilder();
+        for (String term : terms) {
+            anyColumn.append(term).append("* ");
+            titleOnly.append(COL_TITLE).append(':').append(term).append("* ");
+        }
+
+        List<Task> taskList = new ArrayList<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT " + TABLE_TASKS + ".* FROM " + TABLE_TASKS
+                        + " JOIN " + TABLE_TASKS_FTS + " ON " + TABLE_TASKS_FTS + ".docid = "
+                        + TABLE_TASKS + "." + COL_TASK_ID
+                        + " WHERE " + TABLE_TASKS_FTS + " MATCH ? AND "
+                        + TABLE_TASKS + "." + COL_USER_ID_FK + "=?"
+                        + " ORDER BY " + TABLE_TASKS + "." + COL_TASK_ID + " IN (SELECT docid FROM "
+                        + TABLE_TASKS_FTS + " WHERE " + TABLE_TASKS_FTS + " MATCH ?) DESC, "
+                        + TABLE_TASKS + "." + COL_CREATED_AT + " DESC, "
+                        + TABLE_TASKS + "." + COL_TASK_ID + " DESC",
+                new String[]{anyColumn.toString().trim(), String.valueOf(userId),
+                        titleOnly.toString().trim()});
+
+        if (cursor.moveToFirst()) {
+            do {
+                Task task = cursorToTask(cursor);
+                taskList.add(task);
+            } while (cursor.moveToNext());
+        }
+        cursor.close();
+        return taskList;
+    }
+
+    // Tasks due in [fromDay, toDay] (epoch days, inclusive), soonest first
+    public List<Task> getTasksDueBetween(int userId, long fromDay, long toDay) {
         List<Task> taskList = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = db.query(TABLE_TASKS, null,
-                COL_USER_ID_FK + "=? AND (" + COL_TITLE + " LIKE ? OR " +
-                        COL_DESCRIPTION + " LIKE ?)",
-                new String[]{String.valueOf(userId), "%" + query + "%", "%" + query + "%"},
-                null, null, COL_CREATED_AT + " DESC");
+                COL_USER_ID_FK + "=? AND " + COL_DUE_DAY + " BETWEEN ? AND ?",
+                new String[]{String.valueOf(userId), String.valueOf(fromDay), String.valueOf(toDay)},
+                null, null, COL_DUE_DAY + ", " + COL_TASK_ID);
 
         if (cursor.moveToFirst()) {
             do {
@@ -172,48 +476,349 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             } while (cursor.moveToNext());
         }
         cursor.close();
-        db.close();
         return taskList;
     }
 
+    // Like getAllTasks, but rows are read from the cursor only as the list is accessed.
+    // The caller owns the returned list and must close it.
+    public CursorTaskList getAllTasksLazy(int userId) {
+        Cursor cursor = getReadableDatabase().query(TABLE_TASKS, null, COL_USER_ID_FK + "=?",
+                new String[]{String.valueOf(userId)}, null, null,
+                COL_CREATED_AT + " DESC, " + COL_TASK_ID + " DESC");
+        return new CursorTaskList(cursor);
+    }
+
+    // ==================== COUNTS ====================
+
+    // Task count per status for a user, e.g. {Pending=4, Completed=9}
+    public Map<String, Integer> countTasksByStatus(int userId) {
+        return countGroupedBy(userId, COL_STATUS);
+    }
+
+    // Task count per priority for a user, e.g. {High=2, Medium=5, Low=6}
+    public Map<String, Integer> countTasksByPriority(int userId) {
+        return countGroupedBy(userId, COL_PRIORITY);
+    }
+
+    // Tasks due before the given epoch day that aren't completed yet
+    public int countOverdueTasks(int userId, long today) {
+        return (int) DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE_TASKS,
+                COL_USER_ID_FK + "=? AND " + COL_DUE_DAY + "<? AND " + COL_STATUS + "!=?",
+                new String[]{String.valueOf(userId), String.valueOf(today), "Completed"});
+    }
+
+    public int countTasksDueOn(int userId, long day) {
+        return (int) DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE_TASKS,
+                COL_USER_ID_FK + "=? AND " + COL_DUE_DAY + "=?",
+                new String[]{String.valueOf(userId), String.valueOf(day)});
+    }
+
+    private Map<String, Integer> countGroupedBy(int userId, String column) {
+        Map<String, Integer> counts = new HashMap<>();
+        Cursor cursor = getReadableDatabase().query(TABLE_TASKS,
+                new String[]{column, "COUNT(*)"}, COL_USER_ID_FK + "=?",
+                new String[]{String.valueOf(userId)}, column, null, null);
+        while (cursor.moveToNext()) {
+            counts.put(cursor.getString(0), cursor.getInt(1));
+        }
+        cursor.close();
+        return counts;
+    }
+
+    // ==================== LIST SUMMARIES ====================
+
+    // Newest-first list rows for a user, optionally one status, without full descriptions
+    public List<TaskSummary> getTaskSummaries(int userId, String status) {
+        Cursor cursor = queryTaskSummaries(userId, status);
+        List<TaskSummary> summaries = new ArrayList<>(cursor.getCount());
+
+        // Resolve column positions once rather than per row
+        int idIndex = cursor.getColumnIndexOrThrow(COL_TASK_ID);
+        int titleIndex = cursor.getColumnIndexOrThrow(COL_TITLE);
+        int descriptionIndex = cursor.getColumnIndexOrThrow(COL_DESCRIPTION);
+        int dueDateIndex = cursor.getColumnIndexOrThrow(COL_DUE_DATE);
+        int priorityIndex = cursor.getColumnIndexOrThrow(COL_PRIORITY);
+        int statusIndex = cursor.getColumnIndexOrThrow(COL_STATUS);
+        int createdAtIndex = cursor.getColumnIndexOrThrow(COL_CREATED_AT);
+
+        while (cursor.moveToNext()) {
+            summaries.add(new TaskSummary(
+                    cursor.getInt(idIndex),
+                    cursor.getString(titleIndex),
+                    cursor.getString(descriptionIndex),
+                    cursor.getString(dueDateIndex),
+                    cursor.getString(priorityIndex),
+                    cursor.getString(statusIndex),
+                    cursor.getLong(createdAtIndex)));
+        }
+        cursor.close();
+        return summaries;
+    }
+
+    Cursor queryTaskSummaries(int userId, String status) {
+        String selection = COL_USER_ID_FK + "=?";
+        String[] args = {String.valueOf(userId)};
+        if (status != null) {
+            selection += " AND " + COL_STATUS + "=?";
+            args = new String[]{String.valueOf(userId), status};
+        }
+        return getReadableDatabase().query(TABLE_TASKS, SUMMARY_COLUMNS, selection, args,
+                null, null, COL_CREATED_AT + " DESC, " + COL_TASK_ID + " DESC");
+    }
+
+    // Full task with its complete description, for when a summary row is opened
+    public Task getTask(int taskId) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        Cursor cursor = db.query(TABLE_TASKS, null, COL_TASK_ID + "=?",
+                new String[]{String.valueOf(taskId)}, null, null, null);
+
+        Task task = null;
+        if (cursor.moveToFirst()) {
+            task = cursorToTask(cursor);
+        }
+        cursor.close();
+        return task;
+    }
+
+    // Splits user input into plain lowercase words so FTS operators in it are never interpreted
+    private static List<String> toSearchTerms(String query) {
+        List<String> terms = new ArrayList<>();
+        if (query == null) {
+            return terms;
+        }
+        for (String term : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
     public boolean updateTask(Task task) {
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put(COL_TITLE, task.getTitle());
         values.put(COL_DESCRIPTION, task.getDescription());
         values.put(COL_DUE_DATE, task.getDueDate());
+        values.put(COL_DUE_DAY, task.getDueDay());
         values.put(COL_PRIORITY, task.getPriority());
         values.put(COL_STATUS, task.getStatus());
         values.put(COL_ASSIGNED_TO, task.getAssignedTo());
 
         int result = db.update(TABLE_TASKS, values, COL_TASK_ID + "=?",
                 new String[]{String.valueOf(task.getId())});
-        db.close();
         return result > 0;
     }
 
     // YE NAYA METHOD HAI - Task status ko update karne ke liye
     public boolean updateTaskStatus(int taskId, String status) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put(COL_STATUS, status);
-
-        int result = db.update(TABLE_TASKS, values, COL_TASK_ID + "=?",
-                new String[]{String.valueOf(taskId)});
-        db.close();
-        return result > 0;
+        synchronized (writeLock) {
+            SQLiteStatement statement = getStatement(SQL_UPDATE_TASK_STATUS);
+            bindText(statement, 1, status);
+            statement.bindLong(2, taskId);
+            return statement.executeUpdateDelete() > 0;
+        }
     }
 
     public boolean deleteTask(int taskId) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        int result = db.delete(TABLE_TASKS, COL_TASK_ID + "=?",
-                new String[]{String.valueOf(taskId)});
-        db.close();
-        return result > 0;
+        synchronized (writeLock) {
+            SQLiteStatement statement = getStatement(SQL_DELETE_TASK);
+            statement.bindLong(1, taskId);
+            return statement.executeUpdateDelete() > 0;
+        }
+    }
+
+    // ==================== OUTBOX ====================
+
+    // Queues a write and returns its outbox id, or -1 if it couldn't be stored. value is a
+    // JSON object of sub-path to value under path; taskKeys are the tasks it touches.
+    public long enqueueOutbox(Collection<String> taskKeys, String path, String value) {
+        synchronized (writeLock) {
+            SQLiteStatement statement = getStatement(SQL_INSERT_OUTBOX);
+            bindText(statement, 1, TextUtils.join(",", taskKeys));
+            bindText(statement, 2, path);
+            bindText(statement, 3, value);
+            statement.bindLong(4, System.currentTimeMillis());
+            return executeInsertOrFail(statement);
+        }
+    }
+
+    // Oldest queued writes after afterId first (0 for the start of the queue), including
+    // ones still waiting out a backoff
+    public List<OutboxEntry> getOutboxEntries(long afterId, int limit) {
+        List<OutboxEntry> entries = new ArrayList<>();
+        Cursor cursor = getReadableDatabase().query(TABLE_OUTBOX,
+                new String[]{COL_OUTBOX_ID, COL_OUTBOX_TASK_KEYS, COL_OUTBOX_PATH, COL_OUTBOX_VALUE,
+                        COL_OUTBOX_ATTEMPTS, COL_OUTBOX_NEXT_ATTEMPT_AT},
+                COL_OUTBOX_ID + ">?", new String[]{String.valueOf(afterId)},
+                null, null, COL_OUTBOX_ID, String.valueOf(limit));
+        while (cursor.moveToNext()) {
+            entries.add(new OutboxEntry(cursor.getLong(0), cursor.getString(1), cursor.getString(2),
+                    cursor.isNull(3) ? null : cursor.getString(3), cursor.getInt(4), cursor.getLong(5)));
+        }
+        cursor.close();
+        return entries;
+    }
+
+    public int countOutboxEntries() {
+        return (int) DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE_OUTBOX);
+    }
+
+    public void deleteOutboxEntries(Collection<Long> ids) {
+        runInTransaction(() -> {
+            SQLiteStatement statement = getStatement(SQL_DELETE_OUTBOX);
+            for (long id : ids) {
+                statement.bindLong(1, id);
+                statement.executeUpdateDelete();
+            }
+        });
+    }
+
+    // Counts a failed attempt and holds the entry back until nextAttemptAt
+    public void rescheduleOutboxEntry(long id, long nextAttemptAt) {
+        synchronized (writeLock) {
+            SQLiteStatement statement = getStatement(SQL_RESCHEDULE_OUTBOX);
+            statement.bindLong(1, nextAttemptAt);
+            statement.bindLong(2, id);
+            statement.executeUpdateDelete();
+        }
+    }
+
+    // ==================== SYNCED TASKS ====================
+
+    // Stores the latest version of a Firebase task; a deleted task is kept as a tombstone
+    public void saveSyncedTask(String owner, Task task) {
+        synchronized (writeLock) {
+            SQLiteStatement statement = getStatement(SQL_SAVE_SYNCED_TASK);
+            bindText(statement, 1, owner);
+            bindText(statement, 2, task.getFirebaseId());
+            if (task.getUpdatedAt() == null) {
+                statement.bindNull(3);
+            } else {
+                statement.bindLong(3, task.getUpdatedAt());
+            }
+            statement.bindLong(4, task.isDeleted() ? 1 : 0);
+            bindText(statement, 5, task.isDeleted() ? null : TaskCodec.toJson(TaskCodec.toMap(task)));
+            statement.executeInsert();
+        }
+    }
+
+    public void deleteSyncedTask(String owner, String firebaseId) {
+        synchronized (writeLock) {
+            SQLiteStatement statement = getStatement(SQL_DELETE_SYNCED_TASK);
+            bindText(statement, 1, owner);
+            bindText(statement, 2, firebaseId);
+            statement.executeUpdateDelete();
+        }
+    }
+
+    // Live tasks in Firebase key order, tombstones left out
+    public List<Task> getSyncedTasks(String owner) {
+        List<Task> tasks = new ArrayList<>();
+        Cursor cursor = getReadableDatabase().query(TABLE_SYNCED_TASKS,
+                new String[]{COL_SYNCED_FIREBASE_ID, COL_SYNCED_DATA},
+                COL_SYNCED_OWNER + "=? AND " + COL_SYNCED_DELETED + "=0", new String[]{owner},
+                null, null, COL_SYNCED_FIREBASE_ID);
+        while (cursor.moveToNext()) {
+            tasks.add(TaskCodec.fromMap(cursor.getString(0),
+                    (Map<?, ?>) TaskCodec.fromJson(cursor.getString(1))));
+        }
+        cursor.close();
+        return tasks;
+    }
+
+    // Newest updatedAt seen for owner, or null if nothing has been synced yet
+    public Long getSyncWatermark(String owner) {
+        Cursor cursor = getReadableDatabase().rawQuery("SELECT MAX(" + COL_SYNCED_UPDATED_AT + ") FROM "
+                + TABLE_SYNCED_TASKS + " WHERE " + COL_SYNCED_OWNER + "=?", new String[]{owner});
+        Long watermark = null;
+        if (cursor.moveToFirst() && !cursor.isNull(0)) {
+            watermark = cursor.getLong(0);
+        }
+        cursor.close();
+        return watermark;
+    }
+
+    // ==================== CONNECTION ====================
+
+    // Runs several writes as one transaction on the shared connection
+    public void runInTransaction(Runnable work) {
+        synchronized (writeLock) {
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransactionNonExclusive();
+            try {
+                work.run();
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+    }
+
+    // Returns a compiled statement for the given SQL, compiling it on first use.
+    // Must be called with writeLock held, and the statement used only while holding it.
+    private SQLiteStatement getStatement(String sql) {
+        SQLiteStatement statement = statementCache.get(sql);
+        if (statement == null) {
+            statement = getWritableDatabase().compileStatement(sql);
+            statementCache.put(sql, statement);
+        }
+        statement.clearBindings();
+        return statement;
+    }
+
+    // Binds the nine task columns in SQL_INSERT_TASK order
+    private static void bindTask(SQLiteStatement statement, Task task) {
+        bindText(statement, 1, task.getTitle());
+        bindText(statement, 2, task.getDescription());
+        bindText(statement, 3, task.getDueDate());
+        bindText(statement, 4, task.getPriority());
+        bindText(statement, 5, task.getStatus());
+        bindText(statement, 6, task.getAssignedTo());
+        statement.bindLong(7, task.getUserId());
+        statement.bindLong(8, task.getCreatedAt());
+        if (task.getDueDay() == null) {
+            statement.bindNull(9);
+        } else {
+            statement.bindLong(9, task.getDueDay());
+        }
+    }
+
+    private static void bindText(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    // A failed row only aborts its own statement, the rest of the chunk still commits
+    private static long executeInsertOrFail(SQLiteStatement statement) {
+        try {
+            return statement.executeInsert();
+        } catch (SQLException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (writeLock) {
+            for (SQLiteStatement statement : statementCache.values()) {
+                statement.close();
+            }
+            statementCache.clear();
+            super.close();
+        }
+        synchronized (DatabaseHelper.class) {
+            if (instance == this) {
+                instance = null;
+            }
+        }
     }
 
     // Helper method to convert Cursor to Task object
-    private Task cursorToTask(Cursor cursor) {
+    static Task cursorToTask(Cursor cursor) {
         Task task = new Task();
         task.setId(cursor.getInt(0));
         task.setTitle(cursor.getString(1));
@@ -224,6 +829,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         task.setAssignedTo(cursor.getString(6));
         task.setUserId(cursor.getInt(7));
         task.setCreatedAt(cursor.getLong(8));
+        task.setDueDay(cursor.isNull(9) ? null : cursor.getLong(9));
         return task;
     }
 }
\ No newline at end of file
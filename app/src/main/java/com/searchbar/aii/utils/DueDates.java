@@ -0,0 +1,84 @@
+package com.searchbar.aii.utils;
+
+import java.util.Calendar;
+
+// Due dates are stored as epoch days (days since 1970-01-01) so they sort and range-query
+// as plain integers. java.time needs API 26, so the conversion is done by hand.
+public final class DueDates {
+
+    private DueDates() {}
+
+    // Days since 1970-01-01 for a calendar date (month is 1-12)
+    public static long toEpochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    // Parses the "d/M/yyyy" strings written by AddTaskActivity, or returns null if it isn't one
+    public static Long parse(String dueDate) {
+        if (dueDate == null) {
+            return null;
+        }
+        String[] parts = dueDate.trim().split("/");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            int day = Integer.parseInt(parts[0]);
+            int month = Integer.parseInt(parts[1]);
+            int year = Integer.parseInt(parts[2]);
+            if (month < 1 || month > 12 || day < 1 || day > 31) {
+                return null;
+            }
+            return toEpochDay(year, month, day);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // The "d/M/yyyy" text for an epoch day, the inverse of parse
+    public static String format(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return day + "/" + month + "/" + year;
+    }
+
+    public static long today() {
+        return toEpochDay(Calendar.getInstance());
+    }
+
+    // [first, last] epoch day of the current week, using the locale's first day of week
+    public static long[] thisWeek() {
+        Calendar calendar = Calendar.getInstance();
+        int offset = calendar.get(Calendar.DAY_OF_WEEK) - calendar.getFirstDayOfWeek();
+        if (offset < 0) {
+            offset += 7;
+        }
+        long first = toEpochDay(calendar) - offset;
+        return new long[]{first, first + 6};
+    }
+
+    // [first, last] epoch day of the current month
+    public static long[] thisMonth() {
+        Calendar calendar = Calendar.getInstance();
+        long today = toEpochDay(calendar);
+        long first = today - (calendar.get(Calendar.DAY_OF_MONTH) - 1);
+        return new long[]{first, first + calendar.getActualMaximum(Calendar.DAY_OF_MONTH) - 1};
+    }
+
+    private static long toEpochDay(Calendar calendar) {
+        return toEpochDay(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1,
+                calendar.get(Calendar.DAY_OF_MONTH));
+    }
+}
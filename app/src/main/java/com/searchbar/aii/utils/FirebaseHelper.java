@@ -1,25 +1,42 @@
 package com.searchbar.aii.utils;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.database.ChildEventListener;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ServerValue;
 import com.google.firebase.database.ValueEventListener;
 import com.searchbar.aii.models.Task;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class FirebaseHelper {
     private FirebaseAuth mAuth;
     private DatabaseReference mDatabase;
     private Context context;
     private static final String TAG = "FirebaseHelper";
+    // Turns snapshots into Tasks off the main thread; one thread, so events stay in order
+    private static final ExecutorService decoder = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Object> pendingMigrations = new HashMap<>();  // guarded by itself
 
     public FirebaseHelper(Context context) {
         this.context = context;
@@ -185,9 +202,10 @@ public class FirebaseHelper {
         String taskId = mDatabase.child("tasks").child(userId).push().getKey();
 
         if (taskId != null) {
+            taskId = TaskBuckets.keyFor(task.getCreatedAt(), taskId);
             task.setFirebaseId(taskId);
             Log.d(TAG, "Adding task with ID: " + taskId);
-            mDatabase.child("tasks").child(userId).child(taskId).setValue(task)
+            mDatabase.child("tasks").child(userId).updateChildren(TaskBatch.newTask(task))
                     .addOnSuccessListener(aVoid -> {
                         Log.d(TAG, "Task added successfully");
                         listener.onSuccess();
@@ -202,37 +220,106 @@ public class FirebaseHelper {
         }
     }
 
-    // Get all tasks
-    public void getAllTasks(OnTasksLoadListener listener) {
+    // Listen to task changes one child at a time. The initial load arrives as one
+    // onTaskAdded per task; after that only the task that changed is downloaded and parsed.
+    // With a watermark only tasks whose updatedAt is at or after it are loaded, so a device
+    // that already has the older ones downloads just what changed; null loads everything.
+    // Installs from before the compact schema write without updatedAt, so the app only passes
+    // a watermark once they are unsupported (see TaskRepository.getInstance).
+    // Only the recent month buckets (see TaskBuckets) and those in heldBuckets, which the
+    // caller already has tasks from, are observed; TaskObserver.loadOlder adds older ones.
+    // Needs ".indexOn": "u" (TaskCodec's key for updatedAt) on tasks/$uid and
+    // tasks/$uid/$bucket in the database rules.
+    // Returns a handle whose cancel() stops the listeners, or null if no user is logged in.
+    public TaskObserver observeTasks(Long updatedSince, Collection<String> heldBuckets,
+                                     OnTaskChangeListener listener) {
         String userId = getCurrentUserId();
         if (userId == null) {
             Log.e(TAG, "Cannot load tasks: User not logged in");
             listener.onError("User not logged in");
-            return;
+            return null;
         }
 
-        Log.d(TAG, "Loading tasks for user: " + userId);
-        mDatabase.child("tasks").child(userId).addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                List<Task> taskList = new ArrayList<>();
-                for (DataSnapshot taskSnapshot : snapshot.getChildren()) {
-                    Task task = taskSnapshot.getValue(Task.class);
-                    if (task != null) {
-                        task.setFirebaseId(taskSnapshot.getKey());
-                        taskList.add(task);
-                    }
-                }
-                Log.d(TAG, "Loaded " + taskList.size() + " tasks");
-                listener.onTasksLoaded(taskList);
-            }
+        Log.d(TAG, "Observing tasks for user: " + userId + " updated since " + updatedSince);
+        DatabaseReference userTasks = mDatabase.child("tasks").child(userId);
+        TaskObserver observer = new TaskObserver(userTasks, listener);
+
+        // Tasks from before buckets. Bucket names sort before push keys and buckets have no
+        // "u" child, so either query skips the buckets themselves.
+        Query legacyQuery = updatedSince == null
+                ? userTasks.orderByKey().startAt("-")
+                : userTasks.orderByChild(TaskCodec.KEY_UPDATED_AT).startAt(updatedSince);
+        observer.observe(legacyQuery, "");
+
+        TreeSet<String> buckets = new TreeSet<>(TaskBuckets.recent(System.currentTimeMillis()));
+        buckets.addAll(heldBuckets);
+        for (String bucket : buckets) {
+            observer.observeBucket(bucket, updatedSince);
+        }
+        return observer;
+    }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                Log.e(TAG, "Failed to load tasks: " + error.getMessage());
-                listener.onError(error.getMessage());
+    // Decoded with TaskCodec rather than getValue(Task.class), which maps through reflection.
+    // keyPrefix is the bucket path the snapshot came from, empty for pre-bucket tasks.
+    private Task toTask(DataSnapshot snapshot, String keyPrefix) {
+        Object value = snapshot.getValue();
+        if (!(value instanceof Map)) {
+            return null;
+        }
+        Task task = TaskCodec.fromMap(keyPrefix + snapshot.getKey(), (Map<?, ?>) value);
+        // Tasks saved before dueDay existed only have the date string
+        if (task.getDueDay() == null) {
+            task.setDueDay(DueDates.parse(task.getDueDate()));
+        }
+        // Rewriting would only add compact keys next to the legacy ones while both are written
+        if (!TaskCodec.LEGACY_INSTALLS_SUPPORTED && !TaskCodec.isCompact((Map<?, ?>) value)) {
+            rewriteCompact(task);
+        }
+        return task;
+    }
+
+    // ==================== MIGRATION ====================
+    // Old nodes are brought up to date as they are read, on the decoder thread. Rewrites are
+    // collected while the current batch of events is decoded and sent as one update.
+
+    // Legacy nodes are rewritten in the compact schema, once TaskCodec's gate for installs
+    // that predate it is off
+    private void rewriteCompact(Task task) {
+        Map<String, Object> value = TaskCodec.toMap(task);
+        // Keep the node's place in delta sync; one that predates updatedAt gets one now
+        if (task.getUpdatedAt() == null) {
+            value.put(TaskCodec.KEY_UPDATED_AT, ServerValue.TIMESTAMP);
+        }
+        queueMigration(Collections.singletonMap(task.getFirebaseId(), value));
+    }
+
+    // updates are relative to tasks/<uid>
+    private void queueMigration(Map<String, Object> updates) {
+        String userId = getCurrentUserId();
+        if (userId == null) {
+            return;
+        }
+        boolean scheduled;
+        synchronized (pendingMigrations) {
+            scheduled = !pendingMigrations.isEmpty();
+            for (Map.Entry<String, Object> update : updates.entrySet()) {
+                pendingMigrations.put("tasks/" + userId + "/" + update.getKey(), update.getValue());
             }
-        });
+        }
+        if (!scheduled) {
+            mainHandler.post(this::flushMigrations);
+        }
+    }
+
+    private void flushMigrations() {
+        Map<String, Object> updates;
+        synchronized (pendingMigrations) {
+            updates = new HashMap<>(pendingMigrations);
+            pendingMigrations.clear();
+        }
+        Log.d(TAG, "Migrating tasks: " + updates.size() + " paths");
+        mDatabase.updateChildren(updates)
+                .addOnFailureListener(e -> Log.e(TAG, "Failed to migrate tasks: " + e.getMessage()));
     }
 
     // Update task status
@@ -245,7 +332,8 @@ public class FirebaseHelper {
         }
 
         Log.d(TAG, "Updating task " + taskId + " status to: " + status);
-        mDatabase.child("tasks").child(userId).child(taskId).child("status").setValue(status)
+        mDatabase.child("tasks").child(userId)
+                .updateChildren(TaskBatch.statusUpdates(Collections.singletonList(taskId), status))
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "Task status updated successfully");
                     listener.onSuccess();
@@ -265,8 +353,10 @@ public class FirebaseHelper {
             return;
         }
 
+        // Leaves a tombstone so delta sync on other devices picks up the delete
         Log.d(TAG, "Deleting task: " + taskId);
-        mDatabase.child("tasks").child(userId).child(taskId).removeValue()
+        mDatabase.child("tasks").child(userId)
+                .updateChildren(TaskBatch.deletions(Collections.singletonList(taskId)))
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "Task deleted successfully");
                     listener.onSuccess();
@@ -277,6 +367,196 @@ public class FirebaseHelper {
                 });
     }
 
+    // Push key for a new task, generated on the device so it works offline. Callers put it
+    // in the task's bucket with TaskBuckets.keyFor.
+    public String newTaskKey() {
+        String userId = getCurrentUserId();
+        return userId == null ? null : mDatabase.child("tasks").child(userId).push().getKey();
+    }
+
+    // Writes several paths under the database root in one atomic update
+    public void applyUpdates(Map<String, Object> updates, OnWriteCompleteListener listener) {
+        mDatabase.updateChildren(updates, (error, ref) -> {
+            if (error == null) {
+                listener.onSuccess();
+                return;
+            }
+            Log.e(TAG, "Failed to apply " + updates.size() + " updates: " + error.getMessage());
+            // Security rules won't change their answer on a retry
+            listener.onFailure(error.getMessage(), error.getCode() == DatabaseError.PERMISSION_DENIED);
+        });
+    }
+
+    // Handle for a running observeTasks: one child listener per observed bucket, plus one
+    // for the tasks from before buckets. Firebase calls the listeners on the main thread;
+    // they only hand the snapshot to the decoder thread, and the decoded tasks come back to
+    // the main thread in the order Firebase sent them.
+    public class TaskObserver implements FirebaseTaskStore.Observation {
+        private final DatabaseReference userTasks;
+        private final OnTaskChangeListener listener;
+        private final List<Query> queries = new ArrayList<>();
+        private final List<ChildEventListener> childListeners = new ArrayList<>();
+        private final TreeSet<String> buckets = new TreeSet<>();
+        private final List<Runnable> deliveries = new ArrayList<>();  // guarded by itself
+        private boolean loadingOlder;
+        private boolean noOlder;
+        private boolean cancelled;
+
+        TaskObserver(DatabaseReference userTasks, OnTaskChangeListener listener) {
+            this.userTasks = userTasks;
+            this.listener = listener;
+        }
+
+        void observeBucket(String bucket, Long updatedSince) {
+            buckets.add(bucket);
+            Query query = userTasks.child(bucket);
+            if (updatedSince != null) {
+                query = query.orderByChild(TaskCodec.KEY_UPDATED_AT).startAt(updatedSince);
+            }
+            observe(query, bucket + "/");
+        }
+
+        void observe(Query query, String keyPrefix) {
+            ChildEventListener childListener = query.addChildEventListener(new ChildEventListener() {
+                @Override
+                public void onChildAdded(@NonNull DataSnapshot snapshot, String previousChildName) {
+                    decoder.execute(() -> {
+                        Task task = toTask(snapshot, keyPrefix);
+                        if (task != null) {
+                            deliver(() -> listener.onTaskAdded(task));
+                        }
+                    });
+                }
+
+                @Override
+                public void onChildChanged(@NonNull DataSnapshot snapshot, String previousChildName) {
+                    decoder.execute(() -> {
+                        Task task = toTask(snapshot, keyPrefix);
+                        if (task != null) {
+                            deliver(() -> listener.onTaskChanged(task));
+                        }
+                    });
+                }
+
+                @Override
+                public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                    // Queued behind any decode still running, so events keep their order
+                    String taskKey = keyPrefix + snapshot.getKey();
+                    decoder.execute(() -> deliver(() -> listener.onTaskRemoved(taskKey)));
+                }
+
+                @Override
+                public void onChildMoved(@NonNull DataSnapshot snapshot, String previousChildName) {
+                    String taskKey = keyPrefix + snapshot.getKey();
+                    String previousKey = previousChildName == null ? null : keyPrefix + previousChildName;
+                    decoder.execute(() -> deliver(() -> listener.onTaskMoved(taskKey, previousKey)));
+                }
+
+                @Override
+                public void onCancelled(@NonNull DatabaseError error) {
+                    Log.e(TAG, "Failed to load tasks: " + error.getMessage());
+                    listener.onError(error.getMessage());
+                }
+            });
+            queries.add(query);
+            childListeners.add(childListener);
+        }
+
+        // Loads the newest bucket older than those observed and keeps it in sync. Bucket
+        // names are numeric, so they sort by month and before any push key. The lookup
+        // downloads that bucket, so its tasks are delivered from it and the listener
+        // attached afterwards only asks for what changed since.
+        @Override
+        public void loadOlder() {
+            if (cancelled || loadingOlder || noOlder) {
+                return;
+            }
+            loadingOlder = true;
+            String before = TaskBuckets.previous(buckets.first());
+            userTasks.orderByKey().endAt(before).limitToLast(1)
+                    .addListenerForSingleValueEvent(new ValueEventListener() {
+                        @Override
+                        public void onDataChange(@NonNull DataSnapshot snapshot) {
+                            Iterator<DataSnapshot> children = snapshot.getChildren().iterator();
+                            if (!children.hasNext()) {
+                                loadingOlder = false;
+                                noOlder = true;
+                                return;
+                            }
+                            DataSnapshot bucket = children.next();
+                            Log.d(TAG, "Loading older tasks from bucket " + bucket.getKey());
+                            decoder.execute(() -> {
+                                List<Task> tasks = new ArrayList<>();
+                                Long newest = null;
+                                for (DataSnapshot child : bucket.getChildren()) {
+                                    Task task = toTask(child, bucket.getKey() + "/");
+                                    if (task == null) {
+                                        continue;
+                                    }
+                                    tasks.add(task);
+                                    if (task.getUpdatedAt() != null
+                                            && (newest == null || task.getUpdatedAt() > newest)) {
+                                        newest = task.getUpdatedAt();
+                                    }
+                                }
+                                Long since = newest;
+                                deliver(() -> {
+                                    loadingOlder = false;
+                                    for (Task task : tasks) {
+                                        listener.onTaskAdded(task);
+                                    }
+                                    observeBucket(bucket.getKey(), since);
+                                });
+                            });
+                        }
+
+                        @Override
+                        public void onCancelled(@NonNull DatabaseError error) {
+                            loadingOlder = false;
+                            Log.e(TAG, "Failed to load older tasks: " + error.getMessage());
+                            listener.onError(error.getMessage());
+                        }
+                    });
+        }
+
+        // Called on the decoder thread. Decoded events are handed to the main thread in
+        // batches, so a burst of child events costs one post rather than one per task.
+        private void deliver(Runnable delivery) {
+            boolean scheduled;
+            synchronized (deliveries) {
+                scheduled = !deliveries.isEmpty();
+                deliveries.add(delivery);
+            }
+            if (!scheduled) {
+                mainHandler.post(this::deliverPending);
+            }
+        }
+
+        private void deliverPending() {
+            List<Runnable> batch;
+            synchronized (deliveries) {
+                batch = new ArrayList<>(deliveries);
+                deliveries.clear();
+            }
+            for (Runnable delivery : batch) {
+                if (cancelled) {
+                    return;
+                }
+                delivery.run();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            for (int i = 0; i < queries.size(); i++) {
+                queries.get(i).removeEventListener(childListeners.get(i));
+            }
+            queries.clear();
+            childListeners.clear();
+        }
+    }
+
     // ==================== CALLBACK INTERFACES ====================
 
     public interface OnAuthCompleteListener {
@@ -289,8 +569,18 @@ public class FirebaseHelper {
         void onFailure(String error);
     }
 
-    public interface OnTasksLoadListener {
-        void onTasksLoaded(List<Task> tasks);
+    // onFailure's permanent is true when retrying the same write can't succeed
+    public interface OnWriteCompleteListener {
+        void onSuccess();
+        void onFailure(String error, boolean permanent);
+    }
+
+    public interface OnTaskChangeListener {
+        void onTaskAdded(Task task);
+        void onTaskChanged(Task task);
+        void onTaskRemoved(String firebaseId);
+        // Only fired for ordered queries; the task itself is unchanged
+        void onTaskMoved(String firebaseId, String previousFirebaseId);
         void onError(String error);
     }
 }
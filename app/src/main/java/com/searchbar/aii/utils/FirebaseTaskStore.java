@@ -0,0 +1,97 @@
+package com.searchbar.aii.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import com.searchbar.aii.models.Task;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+// The app's TaskStore: writes go through the outbox, reads are Firebase child events on the
+// month buckets of tasks/<uid> (see TaskBuckets). A write the server refuses is reported
+// as rejected once the outbox gives up on it.
+public class FirebaseTaskStore implements TaskStore {
+    private final Source source;
+    private final Outbox outbox;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // The observation started last; loadOlderTasks extends it
+    private Observation observer;
+
+    public FirebaseTaskStore(FirebaseHelper firebaseHelper, Outbox outbox) {
+        this(firebaseHelper::observeTasks, outbox);
+    }
+
+    FirebaseTaskStore(Source source, Outbox outbox) {
+        this.source = source;
+        this.outbox = outbox;
+    }
+
+    @Override
+    public String addTask(Task task) {
+        return outbox.addTask(task);
+    }
+
+    @Override
+    public boolean updateTaskStatus(String taskKey, String status) {
+        return outbox.updateTaskStatus(taskKey, status);
+    }
+
+    @Override
+    public boolean deleteTask(String taskKey) {
+        return outbox.deleteTask(taskKey);
+    }
+
+    @Override
+    public boolean updateTasksStatus(Collection<String> taskKeys, String status) {
+        return outbox.updateTasksStatus(taskKeys, status);
+    }
+
+    @Override
+    public boolean deleteTasks(Collection<String> taskKeys) {
+        return outbox.deleteTasks(taskKeys);
+    }
+
+    @Override
+    public boolean reassignTasks(Collection<String> taskKeys, String assignedTo) {
+        return outbox.reassignTasks(taskKeys, assignedTo);
+    }
+
+    @Override
+    public TaskRepository.Cancellable observeTasks(Long updatedSince, Collection<String> heldKeys,
+                                                   FirebaseHelper.OnTaskChangeListener listener) {
+        Set<String> heldBuckets = new HashSet<>();
+        for (String taskKey : heldKeys) {
+            String bucket = TaskBuckets.bucketOfKey(taskKey);
+            if (bucket != null) {
+                heldBuckets.add(bucket);
+            }
+        }
+        observer = source.observeTasks(updatedSince, heldBuckets, listener);
+        return observer;
+    }
+
+    @Override
+    public void loadOlderTasks() {
+        if (observer != null) {
+            observer.loadOlder();
+        }
+    }
+
+    // The outbox reports writes the server refused; it runs on its own thread
+    @Override
+    public void setOnWriteRejectedListener(OnWriteRejectedListener listener) {
+        outbox.setOnWriteRejectedListener((taskKeys, error) ->
+                mainHandler.post(() -> listener.onWriteRejected(taskKeys, error)));
+    }
+
+    // Where tasks are read from; FirebaseHelper in the app
+    interface Source {
+        Observation observeTasks(Long updatedSince, Collection<String> heldBuckets,
+                                 FirebaseHelper.OnTaskChangeListener listener);
+    }
+
+    // A running observeTasks; FirebaseHelper.TaskObserver in the app
+    interface Observation extends TaskRepository.Cancellable {
+        void loadOlder();
+    }
+}
@@ -0,0 +1,141 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.Task;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// TaskStore held in memory that behaves like the Firebase tree: keys sort in insertion
+// order, every write stamps updatedAt, deletes leave a tombstone, and a write is accepted
+// whether or not its task exists. Listeners are called on the writing thread before the
+// write returns.
+public class InMemoryTaskStore implements TaskStore {
+    private final Map<String, Task> tasks = new LinkedHashMap<>();
+    private final List<FirebaseHelper.OnTaskChangeListener> listeners = new ArrayList<>();
+    private long nextKey;
+    private long lastUpdatedAt;
+
+    @Override
+    public synchronized String addTask(Task task) {
+        String taskKey = String.format(Locale.US, "t%010d", nextKey++);
+        task.setFirebaseId(taskKey);
+        Task stored = copyOf(task);
+        stored.setUpdatedAt(nextUpdatedAt());
+        tasks.put(taskKey, stored);
+        for (FirebaseHelper.OnTaskChangeListener listener : new ArrayList<>(listeners)) {
+            listener.onTaskAdded(copyOf(stored));
+        }
+        return taskKey;
+    }
+
+    @Override
+    public synchronized boolean updateTaskStatus(String taskKey, String status) {
+        Task stored = nodeFor(taskKey);
+        stored.setStatus(status);
+        stored.setUpdatedAt(nextUpdatedAt());
+        store(stored);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean deleteTask(String taskKey) {
+        Task tombstone = new Task();
+        tombstone.setFirebaseId(taskKey);
+        tombstone.setDeleted(true);
+        tombstone.setUpdatedAt(nextUpdatedAt());
+        store(tombstone);
+        return true;
+    }
+
+    // Applied task by task: like the outbox, a bulk write is accepted whatever the tasks hold
+    @Override
+    public synchronized boolean updateTasksStatus(Collection<String> taskKeys, String status) {
+        for (String taskKey : taskKeys) {
+            updateTaskStatus(taskKey, status);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean deleteTasks(Collection<String> taskKeys) {
+        for (String taskKey : taskKeys) {
+            deleteTask(taskKey);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean reassignTasks(Collection<String> taskKeys, String assignedTo) {
+        for (String taskKey : taskKeys) {
+            Task stored = nodeFor(taskKey);
+            stored.setAssignedTo(assignedTo);
+            stored.setUpdatedAt(nextUpdatedAt());
+            store(stored);
+        }
+        return true;
+    }
+
+    // A field write to a missing task creates a node holding just that field, and one to a
+    // tombstone lands in the tombstone, which stays deleted
+    private Task nodeFor(String taskKey) {
+        Task stored = tasks.get(taskKey);
+        if (stored == null) {
+            stored = new Task();
+            stored.setFirebaseId(taskKey);
+        }
+        return stored;
+    }
+
+    private void store(Task stored) {
+        boolean added = tasks.put(stored.getFirebaseId(), stored) == null;
+        for (FirebaseHelper.OnTaskChangeListener listener : new ArrayList<>(listeners)) {
+            if (added) {
+                listener.onTaskAdded(copyOf(stored));
+            } else {
+                listener.onTaskChanged(copyOf(stored));
+            }
+        }
+    }
+
+    @Override
+    public synchronized TaskRepository.Cancellable observeTasks(Long updatedSince, Collection<String> heldKeys,
+                                                                FirebaseHelper.OnTaskChangeListener listener) {
+        for (Task stored : tasks.values()) {
+            if (updatedSince == null || stored.getUpdatedAt() >= updatedSince) {
+                listener.onTaskAdded(copyOf(stored));
+            }
+        }
+        listeners.add(listener);
+        return () -> {
+            synchronized (InMemoryTaskStore.this) {
+                listeners.remove(listener);
+            }
+        };
+    }
+
+    // Not partitioned: observeTasks already delivers everything
+    @Override
+    public void loadOlderTasks() {}
+
+    // Writes never fail
+    @Override
+    public void setOnWriteRejectedListener(OnWriteRejectedListener listener) {}
+
+    public synchronized int size() {
+        return tasks.size();
+    }
+
+    // Strictly increasing, so no two writes share a watermark
+    private long nextUpdatedAt() {
+        lastUpdatedAt = Math.max(System.currentTimeMillis(), lastUpdatedAt + 1);
+        return lastUpdatedAt;
+    }
+
+    // Callers and listeners never share the stored object, as with a real backend
+    private static Task copyOf(Task task) {
+        return TaskCodec.copyOf(task);
+    }
+}
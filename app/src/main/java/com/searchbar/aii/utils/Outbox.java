@@ -0,0 +1,318 @@
+package com.searchbar.aii.utils;
+
+import android.content.Context;
+import android.util.Log;
+import com.searchbar.aii.models.OutboxEntry;
+import com.searchbar.aii.models.Task;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Durable queue in front of Firebase. A task write is stored in SQLite and returns right
+// away; a background flusher sends queued writes to Firebase and only deletes them once
+// the server acknowledges, so pending work survives going offline and process death.
+//
+// Every write is an absolute value at a client-generated push key, which is its
+// idempotency key: replaying a write whose acknowledgement was lost changes nothing.
+// Each write is one outbox row, so it is always sent, retried or dropped whole. Writes for
+// the same task go out strictly in the order they were queued; everything else under the
+// same tasks/<uid> that can go together is sent as one multi-path update. Rows for another
+// path, such as a previous user's left over after logout, wait for a batch of their own.
+// A write the server refuses outright (permission denied), or that fails MAX_ATTEMPTS
+// times, is dropped and reported as rejected. Firebase refuses a multi-path update as a
+// whole, so the rows of a refused batch are resent one at a time first, and only a row
+// refused on its own is dropped.
+public class Outbox {
+    private static final String TAG = "Outbox";
+
+    // Rows read per query while building a batch
+    static final int FLUSH_LIMIT = 200;
+    private static final long BASE_BACKOFF_MS = 1_000;
+    private static final long MAX_BACKOFF_MS = 10 * 60 * 1_000;
+    // About two hours of retries once the backoff is at its cap
+    static final int MAX_ATTEMPTS = 20;
+
+    private static Outbox instance;
+
+    private final DatabaseHelper databaseHelper;
+    private final Sink sink;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final Random random = new Random();
+
+    // Only touched on the executor thread
+    private final Set<Long> inFlight = new HashSet<>();
+    // Rows of a refused batch, each sent alone until it succeeds or is refused by itself
+    private final Set<Long> sendAlone = new HashSet<>();
+    private ScheduledFuture<?> retry;
+    private volatile TaskStore.OnWriteRejectedListener onWriteRejectedListener;
+
+    public static synchronized Outbox getInstance(Context context) {
+        if (instance == null) {
+            FirebaseHelper firebaseHelper = new FirebaseHelper(context.getApplicationContext());
+            instance = new Outbox(DatabaseHelper.getInstance(context), new Sink() {
+                @Override
+                public String getCurrentUserId() {
+                    return firebaseHelper.getCurrentUserId();
+                }
+
+                @Override
+                public String newTaskKey() {
+                    return firebaseHelper.newTaskKey();
+                }
+
+                @Override
+                public void applyUpdates(Map<String, Object> updates, FirebaseHelper.OnWriteCompleteListener listener) {
+                    firebaseHelper.applyUpdates(updates, listener);
+                }
+            });
+        }
+        return instance;
+    }
+
+    Outbox(DatabaseHelper databaseHelper, Sink sink) {
+        this.databaseHelper = databaseHelper;
+        this.sink = sink;
+    }
+
+    // ==================== WRITES ====================
+
+    // Queues a new task and returns its Firebase key, or null if it couldn't be queued
+    public String addTask(Task task) {
+        String pushKey = sink.newTaskKey();
+        if (pushKey == null) {
+            return null;
+        }
+        String taskKey = TaskBuckets.keyFor(task.getCreatedAt(), pushKey);
+        task.setFirebaseId(taskKey);
+        return enqueue(taskKey, TaskBatch.newTask(task)) ? taskKey : null;
+    }
+
+    public boolean updateTaskStatus(String taskKey, String status) {
+        return enqueue(taskKey, TaskBatch.statusUpdates(Collections.singletonList(taskKey), status));
+    }
+
+    public boolean deleteTask(String taskKey) {
+        return enqueue(taskKey, TaskBatch.deletions(Collections.singletonList(taskKey)));
+    }
+
+    // A bulk action is one queued write, sent as one multi-path update
+    public boolean updateTasksStatus(Collection<String> taskKeys, String status) {
+        return enqueue(taskKeys, TaskBatch.statusUpdates(taskKeys, status));
+    }
+
+    public boolean deleteTasks(Collection<String> taskKeys) {
+        return enqueue(taskKeys, TaskBatch.deletions(taskKeys));
+    }
+
+    public boolean reassignTasks(Collection<String> taskKeys, String assignedTo) {
+        return enqueue(taskKeys, TaskBatch.reassignments(taskKeys, assignedTo));
+    }
+
+    // Sends whatever is due; called after each write and when the app comes to the foreground
+    public void flush() {
+        executor.execute(this::drain);
+    }
+
+    public int getPendingCount() {
+        return databaseHelper.countOutboxEntries();
+    }
+
+    // Called on the flusher's thread
+    public void setOnWriteRejectedListener(TaskStore.OnWriteRejectedListener listener) {
+        onWriteRejectedListener = listener;
+    }
+
+    // Stores the paths of one write (relative to tasks/<uid>) as a single row
+    private boolean enqueue(String taskKey, Map<String, Object> updates) {
+        return enqueue(Collections.singletonList(taskKey), updates);
+    }
+
+    private boolean enqueue(Collection<String> taskKeys, Map<String, Object> updates) {
+        String userId = sink.getCurrentUserId();
+        if (userId == null) {
+            return false;
+        }
+        String path = "tasks/" + userId;
+        boolean queued = databaseHelper.enqueueOutbox(taskKeys, path, TaskCodec.toJson(updates)) != -1;
+        if (!queued) {
+            Log.e(TAG, "Failed to queue write for " + taskKeys.size() + " tasks under " + path);
+        }
+        flush();
+        return queued;
+    }
+
+    // ==================== FLUSHER ====================
+
+    private void drain() {
+        long now = System.currentTimeMillis();
+        long nextAttemptAt = Long.MAX_VALUE;
+        // Tasks whose next write can't go in this batch, and tasks already written by it
+        Set<String> blockedTasks = new HashSet<>();
+        Set<String> batchTasks = new HashSet<>();
+        List<OutboxEntry> batch = new ArrayList<>();
+        Map<String, Object> updates = new HashMap<>();
+        String batchPath = null;
+        boolean batchClosed = false;
+
+        // Read a page at a time until a batch is built: with only the oldest rows read, rows
+        // all blocked or backing off would hide ready writes behind them, and their retry time
+        long afterId = 0;
+        List<OutboxEntry> page;
+        do {
+            page = databaseHelper.getOutboxEntries(afterId, FLUSH_LIMIT);
+            for (OutboxEntry entry : page) {
+                afterId = entry.getId();
+                // A task's writes go out in queue order, one per batch so their paths can't
+                // overlap: once one of them can't be sent, none of the later ones can either
+                if (touchesAny(entry, blockedTasks)) {
+                    blockedTasks.addAll(entry.getTaskKeys());
+                    continue;
+                }
+                if (inFlight.contains(entry.getId()) || touchesAny(entry, batchTasks)) {
+                    blockedTasks.addAll(entry.getTaskKeys());
+                    continue;
+                }
+                if (entry.getNextAttemptAt() > now) {
+                    nextAttemptAt = Math.min(nextAttemptAt, entry.getNextAttemptAt());
+                    blockedTasks.addAll(entry.getTaskKeys());
+                    continue;
+                }
+                // One batch per path, and a row that must go alone neither joins nor takes others
+                boolean alone = sendAlone.contains(entry.getId());
+                if (batchClosed || (batchPath != null && (alone || !batchPath.equals(entry.getPath())))) {
+                    blockedTasks.addAll(entry.getTaskKeys());
+                    continue;
+                }
+                batchPath = entry.getPath();
+                batchClosed = alone;
+                batch.add(entry);
+                batchTasks.addAll(entry.getTaskKeys());
+                Map<?, ?> write = (Map<?, ?>) TaskCodec.fromJson(entry.getValue());
+                for (Map.Entry<?, ?> update : write.entrySet()) {
+                    updates.put(entry.getPath() + "/" + update.getKey(), update.getValue());
+                }
+            }
+        } while (batch.isEmpty() && page.size() == FLUSH_LIMIT);
+
+        if (nextAttemptAt != Long.MAX_VALUE) {
+            scheduleRetry(nextAttemptAt - now);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        for (OutboxEntry entry : batch) {
+            inFlight.add(entry.getId());
+        }
+        Log.d(TAG, "Sending " + batch.size() + " queued writes");
+        sink.applyUpdates(updates, new FirebaseHelper.OnWriteCompleteListener() {
+            @Override
+            public void onSuccess() {
+                executor.execute(() -> onBatchDone(batch, null, false));
+            }
+
+            @Override
+            public void onFailure(String error, boolean permanent) {
+                executor.execute(() -> onBatchDone(batch, error, permanent));
+            }
+        });
+    }
+
+    private void onBatchDone(List<OutboxEntry> batch, String error, boolean permanent) {
+        List<Long> ids = new ArrayList<>(batch.size());
+        for (OutboxEntry entry : batch) {
+            ids.add(entry.getId());
+        }
+
+        if (error == null) {
+            databaseHelper.deleteOutboxEntries(ids);
+            sendAlone.removeAll(ids);
+        } else if (permanent && batch.size() > 1) {
+            // Any one of them may be the write that was refused; find out which
+            Log.e(TAG, "Batch of " + batch.size() + " writes rejected, resending one at a time: " + error);
+            sendAlone.addAll(ids);
+        } else if (permanent) {
+            Log.e(TAG, "Queued write rejected, dropping it: " + error);
+            databaseHelper.deleteOutboxEntries(ids);
+            sendAlone.removeAll(ids);
+            reportRejected(batch, error);
+        } else {
+            Log.e(TAG, "Queued writes failed, retrying later: " + error);
+            long now = System.currentTimeMillis();
+            List<Long> givenUp = new ArrayList<>();
+            List<OutboxEntry> givenUpEntries = new ArrayList<>();
+            for (OutboxEntry entry : batch) {
+                if (entry.getAttempts() + 1 >= MAX_ATTEMPTS) {
+                    givenUp.add(entry.getId());
+                    givenUpEntries.add(entry);
+                } else {
+                    databaseHelper.rescheduleOutboxEntry(entry.getId(), now + backoffMillis(entry.getAttempts()));
+                }
+            }
+            if (!givenUp.isEmpty()) {
+                Log.e(TAG, "Giving up on " + givenUp.size() + " writes after " + MAX_ATTEMPTS + " attempts");
+                databaseHelper.deleteOutboxEntries(givenUp);
+                sendAlone.removeAll(givenUp);
+                reportRejected(givenUpEntries, error);
+            }
+        }
+        inFlight.removeAll(ids);
+        drain();
+    }
+
+    private void reportRejected(List<OutboxEntry> entries, String error) {
+        TaskStore.OnWriteRejectedListener listener = onWriteRejectedListener;
+        if (listener == null) {
+            return;
+        }
+        Set<String> taskKeys = new LinkedHashSet<>();
+        for (OutboxEntry entry : entries) {
+            taskKeys.addAll(entry.getTaskKeys());
+        }
+        listener.onWriteRejected(taskKeys, error);
+    }
+
+    private static boolean touchesAny(OutboxEntry entry, Set<String> taskKeys) {
+        for (String taskKey : entry.getTaskKeys()) {
+            if (taskKeys.contains(taskKey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void scheduleRetry(long delayMillis) {
+        if (retry != null) {
+            retry.cancel(false);
+        }
+        retry = executor.schedule(this::drain, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Doubles with each failed attempt up to MAX_BACKOFF_MS, with jitter so that
+    // many clients coming back online don't retry in lockstep
+    long backoffMillis(int attempts) {
+        long delay = BASE_BACKOFF_MS << Math.min(attempts, 20);
+        delay = Math.min(delay, MAX_BACKOFF_MS);
+        return delay / 2 + (long) (random.nextDouble() * (delay / 2));
+    }
+
+    // Where queued writes are sent; FirebaseHelper in the app
+    interface Sink {
+        String getCurrentUserId();
+
+        String newTaskKey();
+
+        void applyUpdates(Map<String, Object> updates, FirebaseHelper.OnWriteCompleteListener listener);
+    }
+}
@@ -0,0 +1,117 @@
+package com.searchbar.aii.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import com.searchbar.aii.models.Task;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs task searches on a worker thread as the user types. A query waits DEBOUNCE_MS before
+// it starts, and a newer one replaces it in that time, so intermediate keystrokes are never
+// searched. A search already running when a newer query arrives stops at its next check.
+// Results are delivered on the main thread, and only for the latest query.
+// The TaskSearchIndex lives on the worker; tasks are fed to it through put and remove, which
+// are queued in order with the searches.
+public class SearchScheduler {
+    static final long DEBOUNCE_MS = 150;
+
+    // Shared by every scheduler, like TaskListUpdater's diff thread
+    private static final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor();
+
+    private final TaskSearchIndex index = new TaskSearchIndex();
+    private final Executor resultExecutor;
+    private final long debounceMillis;
+    // Bumped by every search and cancel; work for an older one is dropped
+    private final AtomicInteger generation = new AtomicInteger();
+    private ScheduledFuture<?> pending;
+
+    // Queries replaced while still waiting out the debounce
+    private final AtomicInteger skipped = new AtomicInteger();
+    // Queries that started but were replaced before their results were shown
+    private final AtomicInteger cancelled = new AtomicInteger();
+    // Queries whose results were delivered
+    private final AtomicInteger completed = new AtomicInteger();
+
+    public SearchScheduler() {
+        this(DEBOUNCE_MS, new Handler(Looper.getMainLooper())::post);
+    }
+
+    SearchScheduler(long debounceMillis, Executor resultExecutor) {
+        this.debounceMillis = debounceMillis;
+        this.resultExecutor = resultExecutor;
+    }
+
+    // ==================== INDEX ====================
+
+    public void put(Task task) {
+        worker.execute(() -> index.put(task));
+    }
+
+    public void remove(String taskKey) {
+        worker.execute(() -> index.remove(taskKey));
+    }
+
+    public void clear() {
+        worker.execute(index::clear);
+    }
+
+    // ==================== SEARCH ====================
+
+    // Call on the main thread. callback gets the matches for query, unless another search
+    // or cancel comes first.
+    public void search(String query, OnResultsListener callback) {
+        final int requestGeneration = supersede();
+        pending = worker.schedule(() -> run(requestGeneration, query, callback),
+                debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Drops any search not yet delivered, e.g. when the search box is cleared
+    public void cancel() {
+        supersede();
+        pending = null;
+    }
+
+    public int getSkippedCount() {
+        return skipped.get();
+    }
+
+    public int getCancelledCount() {
+        return cancelled.get();
+    }
+
+    public int getCompletedCount() {
+        return completed.get();
+    }
+
+    private int supersede() {
+        if (pending != null && pending.cancel(false)) {
+            skipped.incrementAndGet();
+        }
+        return generation.incrementAndGet();
+    }
+
+    private void run(int requestGeneration, String query, OnResultsListener callback) {
+        List<Task> results = index.search(query, () -> requestGeneration != generation.get());
+        if (results == null) {
+            cancelled.incrementAndGet();
+            return;
+        }
+        resultExecutor.execute(() -> {
+            if (requestGeneration != generation.get()) {
+                cancelled.incrementAndGet();
+                return;
+            }
+            completed.incrementAndGet();
+            callback.onResults(query, results);
+        });
+    }
+
+    public interface OnResultsListener {
+        void onResults(String query, List<Task> results);
+    }
+}
@@ -0,0 +1,143 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.Task;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// TaskStore over one user's rows in DatabaseHelper; a task's key is its row id. SQLite has
+// no change feed, so only writes made through this store reach its listeners, on the
+// writing thread. Deletes remove the row and arrive as onTaskRemoved. As in Firebase, a
+// write to a missing task is accepted; here it changes nothing. All tasks are delivered on
+// observe whatever updatedSince is, as rows carry no updatedAt.
+public class SqliteTaskStore implements TaskStore {
+    private final DatabaseHelper databaseHelper;
+    private final int userId;
+    private final List<FirebaseHelper.OnTaskChangeListener> listeners = new ArrayList<>();
+
+    public SqliteTaskStore(DatabaseHelper databaseHelper, int userId) {
+        this.databaseHelper = databaseHelper;
+        this.userId = userId;
+    }
+
+    @Override
+    public String addTask(Task task) {
+        task.setUserId(userId);
+        long id = databaseHelper.insertTask(task);
+        if (id == -1) {
+            return null;
+        }
+        task.setId((int) id);
+        task.setFirebaseId(String.valueOf(id));
+        for (FirebaseHelper.OnTaskChangeListener listener : listeners()) {
+            listener.onTaskAdded(task);
+        }
+        return task.getFirebaseId();
+    }
+
+    @Override
+    public boolean updateTaskStatus(String taskKey, String status) {
+        int id = Integer.parseInt(taskKey);
+        if (!databaseHelper.updateTaskStatus(id, status)) {
+            return databaseHelper.getTask(id) == null;
+        }
+        Task task = withKey(databaseHelper.getTask(id));
+        for (FirebaseHelper.OnTaskChangeListener listener : listeners()) {
+            listener.onTaskChanged(task);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean deleteTask(String taskKey) {
+        int id = Integer.parseInt(taskKey);
+        if (!databaseHelper.deleteTask(id)) {
+            return databaseHelper.getTask(id) == null;
+        }
+        for (FirebaseHelper.OnTaskChangeListener listener : listeners()) {
+            listener.onTaskRemoved(taskKey);
+        }
+        return true;
+    }
+
+    // One transaction for all the rows; false if any of them couldn't be written
+    @Override
+    public boolean updateTasksStatus(Collection<String> taskKeys, String status) {
+        boolean[] all = {true};
+        databaseHelper.runInTransaction(() -> {
+            for (String taskKey : taskKeys) {
+                all[0] &= updateTaskStatus(taskKey, status);
+            }
+        });
+        return all[0];
+    }
+
+    @Override
+    public boolean deleteTasks(Collection<String> taskKeys) {
+        boolean[] all = {true};
+        databaseHelper.runInTransaction(() -> {
+            for (String taskKey : taskKeys) {
+                all[0] &= deleteTask(taskKey);
+            }
+        });
+        return all[0];
+    }
+
+    @Override
+    public boolean reassignTasks(Collection<String> taskKeys, String assignedTo) {
+        boolean[] all = {true};
+        databaseHelper.runInTransaction(() -> {
+            for (String taskKey : taskKeys) {
+                Task task = databaseHelper.getTask(Integer.parseInt(taskKey));
+                if (task == null) {
+                    continue;
+                }
+                task.setAssignedTo(assignedTo);
+                if (!databaseHelper.updateTask(task)) {
+                    all[0] = false;
+                    continue;
+                }
+                Task changed = withKey(task);
+                for (FirebaseHelper.OnTaskChangeListener listener : listeners()) {
+                    listener.onTaskChanged(changed);
+                }
+            }
+        });
+        return all[0];
+    }
+
+    @Override
+    public TaskRepository.Cancellable observeTasks(Long updatedSince, Collection<String> heldKeys,
+                                                   FirebaseHelper.OnTaskChangeListener listener) {
+        for (Task task : databaseHelper.getAllTasks(userId)) {
+            listener.onTaskAdded(withKey(task));
+        }
+        synchronized (listeners) {
+            listeners.add(listener);
+        }
+        return () -> {
+            synchronized (listeners) {
+                listeners.remove(listener);
+            }
+        };
+    }
+
+    // Not partitioned: observeTasks already delivers everything
+    @Override
+    public void loadOlderTasks() {}
+
+    // Writes fail by returning false
+    @Override
+    public void setOnWriteRejectedListener(OnWriteRejectedListener listener) {}
+
+    private List<FirebaseHelper.OnTaskChangeListener> listeners() {
+        synchronized (listeners) {
+            return new ArrayList<>(listeners);
+        }
+    }
+
+    private static Task withKey(Task task) {
+        task.setFirebaseId(String.valueOf(task.getId()));
+        return task;
+    }
+}
@@ -0,0 +1,48 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.Task;
+import java.util.Collections;
+import java.util.List;
+
+// TaskRepository's local copy of the signed-in user's Firebase tasks, kept in SQLite.
+// Writes go through TaskWriter so the main thread never waits on disk for them, and the
+// one-event-per-task initial load is committed in a few transactions instead of one each.
+public class SyncedTaskCache implements TaskRepository.TaskCache {
+    private final DatabaseHelper databaseHelper;
+    private final TaskWriter writer;
+    private final FirebaseHelper firebaseHelper;
+
+    public SyncedTaskCache(DatabaseHelper databaseHelper, TaskWriter writer, FirebaseHelper firebaseHelper) {
+        this.databaseHelper = databaseHelper;
+        this.writer = writer;
+        this.firebaseHelper = firebaseHelper;
+    }
+
+    @Override
+    public List<Task> load() {
+        String owner = firebaseHelper.getCurrentUserId();
+        return owner == null ? Collections.emptyList() : databaseHelper.getSyncedTasks(owner);
+    }
+
+    @Override
+    public Long getWatermark() {
+        String owner = firebaseHelper.getCurrentUserId();
+        return owner == null ? null : databaseHelper.getSyncWatermark(owner);
+    }
+
+    @Override
+    public void save(Task task) {
+        String owner = firebaseHelper.getCurrentUserId();
+        if (owner != null) {
+            writer.saveSynced(owner, task);
+        }
+    }
+
+    @Override
+    public void remove(String firebaseId) {
+        String owner = firebaseHelper.getCurrentUserId();
+        if (owner != null) {
+            writer.deleteSynced(owner, firebaseId);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.searchbar.aii.utils;
+
+import com.google.firebase.database.ServerValue;
+import com.searchbar.aii.models.Task;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+// Builds multi-path updates for tasks/<uid>, so a change to many tasks goes out as one
+// atomic updateChildren call (one round trip, one result) instead of a write per task.
+// Every write also stamps updatedAt with the server time, which delta sync orders by.
+// Keys are TaskCodec's compact ones, so a field write lands in the same place toMap puts it,
+// and while TaskCodec writes legacy fields the bean-named copy is written alongside.
+public final class TaskBatch {
+
+    private TaskBatch() {}
+
+    public static Map<String, Object> newTask(Task task) {
+        Map<String, Object> value = TaskCodec.toMap(task);
+        value.put(TaskCodec.KEY_UPDATED_AT, ServerValue.TIMESTAMP);
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(task.getFirebaseId(), value);
+        return updates;
+    }
+
+    public static Map<String, Object> statusUpdates(Collection<String> taskIds, String status) {
+        return fieldUpdates(taskIds, TaskCodec.KEY_STATUS, TaskCodec.encodeStatus(status),
+                TaskCodec.LEGACY_STATUS, status);
+    }
+
+    public static Map<String, Object> reassignments(Collection<String> taskIds, String assignedTo) {
+        return fieldUpdates(taskIds, TaskCodec.KEY_ASSIGNED_TO, assignedTo,
+                TaskCodec.LEGACY_ASSIGNED_TO, assignedTo);
+    }
+
+    // Deleted tasks are replaced by a tombstone rather than removed, so a device syncing
+    // changes since its last sync still hears about the delete
+    public static Map<String, Object> deletions(Collection<String> taskIds) {
+        Map<String, Object> updates = new HashMap<>();
+        for (String taskId : taskIds) {
+            Map<String, Object> tombstone = new HashMap<>();
+            tombstone.put(TaskCodec.KEY_VERSION, TaskCodec.VERSION);
+            tombstone.put(TaskCodec.KEY_DELETED, true);
+            tombstone.put(TaskCodec.KEY_UPDATED_AT, ServerValue.TIMESTAMP);
+            updates.put(taskId, tombstone);
+        }
+        return updates;
+    }
+
+    private static Map<String, Object> fieldUpdates(Collection<String> taskIds, String field, Object value,
+                                                    String legacyField, Object legacyValue) {
+        Map<String, Object> updates = new HashMap<>();
+        for (String taskId : taskIds) {
+            updates.put(taskId + "/" + field, value);
+            if (TaskCodec.LEGACY_INSTALLS_SUPPORTED) {
+                updates.put(taskId + "/" + legacyField, legacyValue);
+            }
+            updates.put(taskId + "/" + TaskCodec.KEY_UPDATED_AT, ServerValue.TIMESTAMP);
+        }
+        return updates;
+    }
+}
@@ -0,0 +1,59 @@
+package com.searchbar.aii.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Tasks are stored under tasks/<uid>/<bucket>/<push key>, where the bucket is the month the
+// task was created in, as "yyyyMM" (UTC). A task's key includes its bucket ("202510/-Nq..."),
+// so every path built from a key lands in the right bucket without looking anything up.
+// Only the recent buckets are listened to from the start; older ones load on demand, so
+// what a device downloads up front doesn't grow with the user's history.
+// Tasks written before buckets existed sit directly under tasks/<uid> and have plain keys.
+// They stay there: moving one would strand writes still aimed at its old key (queued in an
+// outbox, or from a device that hasn't seen the move), so only new tasks go in buckets.
+public final class TaskBuckets {
+    // Buckets observed from the start: this month and the ones before it
+    static final int HOT_MONTHS = 3;
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private TaskBuckets() {}
+
+    public static String bucketOf(long createdAt) {
+        // DueDates.format gives d/M/yyyy; only the month and year are wanted
+        String[] date = DueDates.format(Math.floorDiv(createdAt, MILLIS_PER_DAY)).split("/");
+        return toBucket(Integer.parseInt(date[2]), Integer.parseInt(date[1]));
+    }
+
+    public static String keyFor(long createdAt, String pushKey) {
+        return bucketOf(createdAt) + "/" + pushKey;
+    }
+
+    // The bucket part of a task key, or null for a key from before buckets
+    public static String bucketOfKey(String taskKey) {
+        int slash = taskKey.indexOf('/');
+        return slash == -1 ? null : taskKey.substring(0, slash);
+    }
+
+    public static String previous(String bucket) {
+        int year = Integer.parseInt(bucket.substring(0, 4));
+        int month = Integer.parseInt(bucket.substring(4));
+        return month == 1 ? toBucket(year - 1, 12) : toBucket(year, month - 1);
+    }
+
+    // The HOT_MONTHS buckets ending with the one now falls in, newest first
+    public static List<String> recent(long now) {
+        List<String> buckets = new ArrayList<>();
+        String bucket = bucketOf(now);
+        for (int i = 0; i < HOT_MONTHS; i++) {
+            buckets.add(bucket);
+            bucket = previous(bucket);
+        }
+        return buckets;
+    }
+
+    private static String toBucket(int year, int month) {
+        return String.format(Locale.US, "%04d%02d", year, month);
+    }
+}
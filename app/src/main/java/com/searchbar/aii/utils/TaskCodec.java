@@ -0,0 +1,248 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.Task;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+// Task <-> the plain map Firebase stores, and plain values <-> JSON text for local storage.
+// Tasks are written in a compact schema (version 2): short keys, small integer codes for
+// priority and status, no copy of the Firebase key, and no fields the value can be derived
+// from. Nodes written before it used the Task bean's property names; they still decode,
+// and unlike the SDK's bean mapper there is no reflection and unknown properties are skipped.
+public final class TaskCodec {
+    static final int VERSION = 2;
+
+    // Gate for installs from before the compact schema, which read nodes with
+    // getValue(Task.class) and only know the bean names. While it is on, every write carries
+    // the fields those installs use under their bean names as well, so nodes are larger than
+    // either schema alone, and legacy nodes are left as they are rather than rewritten.
+    // Turn it off once a minimum app version that reads the compact schema is enforced:
+    // writes then shrink to the compact keys alone and legacy nodes are rewritten on read.
+    static final boolean LEGACY_INSTALLS_SUPPORTED = true;
+
+    // Compact keys, shared with TaskBatch for single-field writes
+    static final String KEY_VERSION = "v";
+    static final String KEY_TITLE = "t";
+    static final String KEY_DESCRIPTION = "d";
+    static final String KEY_DUE_DATE = "dd";  // only when it isn't DueDates.format(dueDay)
+    static final String KEY_DUE_DAY = "dy";
+    static final String KEY_PRIORITY = "p";
+    static final String KEY_STATUS = "s";
+    static final String KEY_ASSIGNED_TO = "a";
+    static final String KEY_CREATED_AT = "c";
+    static final String KEY_UPDATED_AT = "u";
+    static final String KEY_DELETED = "x";
+
+    // Bean names an old install reads and writes
+    static final String LEGACY_STATUS = "status";
+    static final String LEGACY_ASSIGNED_TO = "assignedTo";
+
+    // Codes are the index; a value not listed is stored as the string itself
+    private static final String[] PRIORITIES = {"High", "Medium", "Low"};
+    private static final String[] STATUSES = {"Pending", "Completed"};
+
+    private TaskCodec() {}
+
+    // Empty strings and defaults are left out; id and userId are local SQLite fields and
+    // the Firebase key is the node's own key, so none of them are stored
+    public static Map<String, Object> toMap(Task task) {
+        return toMap(task, LEGACY_INSTALLS_SUPPORTED);
+    }
+
+    static Map<String, Object> toMap(Task task, boolean legacyFields) {
+        Map<String, Object> map = new HashMap<>();
+        map.put(KEY_VERSION, VERSION);
+        putIfPresent(map, KEY_TITLE, task.getTitle());
+        putIfPresent(map, KEY_DESCRIPTION, task.getDescription());
+        putIfPresent(map, KEY_DUE_DAY, task.getDueDay());
+        String dueDate = task.getDueDate();
+        if (dueDate != null && !dueDate.isEmpty()
+                && (task.getDueDay() == null || !dueDate.equals(DueDates.format(task.getDueDay())))) {
+            map.put(KEY_DUE_DATE, dueDate);
+        }
+        putIfPresent(map, KEY_PRIORITY, encode(task.getPriority(), PRIORITIES));
+        putIfPresent(map, KEY_STATUS, encodeStatus(task.getStatus()));
+        putIfPresent(map, KEY_ASSIGNED_TO, task.getAssignedTo());
+        if (task.getCreatedAt() != 0) {
+            map.put(KEY_CREATED_AT, task.getCreatedAt());
+        }
+        putIfPresent(map, KEY_UPDATED_AT, task.getUpdatedAt());
+        if (task.isDeleted()) {
+            map.put(KEY_DELETED, true);
+        }
+        if (legacyFields && !task.isDeleted()) {
+            // As the bean mapper wrote them, empty strings included
+            putIfNotNull(map, "title", task.getTitle());
+            putIfNotNull(map, "description", task.getDescription());
+            putIfNotNull(map, "dueDate", task.getDueDate());
+            putIfNotNull(map, "priority", task.getPriority());
+            putIfNotNull(map, LEGACY_STATUS, task.getStatus());
+            putIfNotNull(map, LEGACY_ASSIGNED_TO, task.getAssignedTo());
+            map.put("createdAt", task.getCreatedAt());
+        }
+        return map;
+    }
+
+    // The value TaskBatch writes to <key>/s
+    static Object encodeStatus(String status) {
+        return encode(status, STATUSES);
+    }
+
+    // True for nodes already in the compact schema; anything else is a legacy bean node
+    public static boolean isCompact(Map<?, ?> map) {
+        return toLong(map.get(KEY_VERSION), 0) >= VERSION;
+    }
+
+    // Missing properties keep the Task defaults, as with Firebase's bean mapping. A property
+    // holding the wrong type is treated as missing instead of failing the whole task. Each
+    // field falls back to its legacy name, so a legacy node that has since had a single
+    // field written in the compact schema (a status toggle, say) reads correctly. While
+    // legacy fields are written too, a field under both names is read from the bean name:
+    // an old install's status toggle only updates that one.
+    public static Task fromMap(String firebaseId, Map<?, ?> map) {
+        boolean compact = isCompact(map);
+        Task task = new Task();
+        task.setId((int) toLong(map.get("id"), 0));
+        task.setFirebaseId(firebaseId);
+        task.setTitle(field(map, KEY_TITLE, "title"));
+        task.setDescription(text(map, KEY_DESCRIPTION, "description", compact));
+        task.setDueDay(toLong(map.containsKey(KEY_DUE_DAY) ? map.get(KEY_DUE_DAY) : map.get("dueDay")));
+        String dueDate = field(map, KEY_DUE_DATE, "dueDate");
+        if (dueDate == null && compact) {
+            dueDate = task.getDueDay() != null ? DueDates.format(task.getDueDay()) : "";
+        }
+        task.setDueDate(dueDate);
+        task.setPriority(decode(pick(map, KEY_PRIORITY, "priority"), PRIORITIES));
+        task.setStatus(decode(pick(map, KEY_STATUS, LEGACY_STATUS), STATUSES));
+        task.setAssignedTo(text(map, KEY_ASSIGNED_TO, LEGACY_ASSIGNED_TO, compact));
+        task.setUserId((int) toLong(map.get("userId"), 0));
+        task.setCreatedAt(toLong(pick(map, KEY_CREATED_AT, "createdAt"), 0));
+        task.setUpdatedAt(toLong(map.containsKey(KEY_UPDATED_AT) ? map.get(KEY_UPDATED_AT) : map.get("updatedAt")));
+        task.setDeleted(Boolean.TRUE.equals(map.containsKey(KEY_DELETED) ? map.get(KEY_DELETED) : map.get("deleted")));
+        return task;
+    }
+
+    // Field-by-field copy, cheaper than a trip through toMap and fromMap
+    public static Task copyOf(Task task) {
+        Task copy = new Task();
+        copy.setId(task.getId());
+        copy.setFirebaseId(task.getFirebaseId());
+        copy.setTitle(task.getTitle());
+        copy.setDescription(task.getDescription());
+        copy.setDueDate(task.getDueDate());
+        copy.setDueDay(task.getDueDay());
+        copy.setPriority(task.getPriority());
+        copy.setStatus(task.getStatus());
+        copy.setAssignedTo(task.getAssignedTo());
+        copy.setUserId(task.getUserId());
+        copy.setCreatedAt(task.getCreatedAt());
+        copy.setUpdatedAt(task.getUpdatedAt());
+        copy.setDeleted(task.isDeleted());
+        return copy;
+    }
+
+    private static Object encode(String value, String[] codes) {
+        if (value == null) {
+            return null;
+        }
+        for (int i = 0; i < codes.length; i++) {
+            if (codes[i].equals(value)) {
+                return i;
+            }
+        }
+        return value;
+    }
+
+    private static String decode(Object value, String[] codes) {
+        if (value instanceof Number) {
+            long code = ((Number) value).longValue();
+            return code >= 0 && code < codes.length ? codes[(int) code] : null;
+        }
+        return toString(value);
+    }
+
+    private static String field(Map<?, ?> map, String key, String legacyKey) {
+        return toString(pick(map, key, legacyKey));
+    }
+
+    // For the fields toMap writes under both names; the rest were never written by old installs
+    private static Object pick(Map<?, ?> map, String key, String legacyKey) {
+        boolean legacy = LEGACY_INSTALLS_SUPPORTED ? map.containsKey(legacyKey) : !map.containsKey(key);
+        return map.get(legacy ? legacyKey : key);
+    }
+
+    // The compact schema leaves empty strings out, so there missing means empty
+    private static String text(Map<?, ?> map, String key, String legacyKey, boolean compact) {
+        String value = field(map, key, legacyKey);
+        return value == null && compact ? "" : value;
+    }
+
+    private static void putIfNotNull(Map<String, Object> map, String key, Object value) {
+        if (value != null) {
+            map.put(key, value);
+        }
+    }
+
+    private static void putIfPresent(Map<String, Object> map, String key, Object value) {
+        if (value != null && !"".equals(value)) {
+            map.put(key, value);
+        }
+    }
+
+    // ==================== JSON ====================
+
+    // Null stays null; maps become objects, strings are quoted
+    public static String toJson(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Map) {
+            return new JSONObject((Map<?, ?>) value).toString();
+        }
+        if (value instanceof String) {
+            return JSONObject.quote((String) value);
+        }
+        return String.valueOf(value);
+    }
+
+    public static Object fromJson(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return toPlain(new JSONTokener(json).nextValue());
+        } catch (JSONException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + json, e);
+        }
+    }
+
+    private static Object toPlain(Object json) throws JSONException {
+        if (json instanceof JSONObject) {
+            JSONObject object = (JSONObject) json;
+            Map<String, Object> map = new HashMap<>();
+            Iterator<String> keys = object.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                map.put(key, toPlain(object.get(key)));
+            }
+            return map;
+        }
+        return json == JSONObject.NULL ? null : json;
+    }
+
+    private static String toString(Object value) {
+        return value instanceof String ? (String) value : null;
+    }
+
+    private static Long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
+
+    private static long toLong(Object value, long fallback) {
+        return value instanceof Number ? ((Number) value).longValue() : fallback;
+    }
+}
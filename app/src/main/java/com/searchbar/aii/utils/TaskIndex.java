@@ -0,0 +1,139 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.Task;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+// The tasks on screen, bucketed by status and by priority and kept up to date one change at
+// a time. A tab or filter switch hands back a list that is already built instead of
+// rescanning every task; the lists are only rebuilt for buckets a change touched. Status
+// and priority together are the smaller bucket filtered by the other field.
+// Tasks are kept in key order, which for Firebase push keys is creation order.
+// Use from one thread; the lists it returns never change afterwards, so they can be passed
+// to other threads.
+public class TaskIndex {
+    private final Bucket all = new Bucket();
+    private final Map<String, Bucket> byStatus = new HashMap<>();
+    private final Map<String, Bucket> byPriority = new HashMap<>();
+    // Status + priority views, dropped on any change
+    private final Map<String, List<Task>> combined = new HashMap<>();
+
+    // Adds the task, or replaces the one with its key
+    public void put(Task task) {
+        remove(task.getFirebaseId());
+        all.put(task);
+        bucket(byStatus, task.getStatus()).put(task);
+        bucket(byPriority, task.getPriority()).put(task);
+        combined.clear();
+    }
+
+    public void remove(String taskKey) {
+        Task old = all.remove(taskKey);
+        if (old == null) {
+            return;
+        }
+        byStatus.get(old.getStatus()).remove(taskKey);
+        byPriority.get(old.getPriority()).remove(taskKey);
+        combined.clear();
+    }
+
+    public void clear() {
+        all.clear();
+        byStatus.clear();
+        byPriority.clear();
+        combined.clear();
+    }
+
+    public int size() {
+        return all.tasks.size();
+    }
+
+    public int countByStatus(String status) {
+        Bucket bucket = byStatus.get(status);
+        return bucket == null ? 0 : bucket.tasks.size();
+    }
+
+    // Tasks with this status and priority; null for either means any
+    public List<Task> view(String status, String priority) {
+        if (status == null && priority == null) {
+            return all.view();
+        }
+        if (priority == null) {
+            return view(byStatus, status);
+        }
+        if (status == null) {
+            return view(byPriority, priority);
+        }
+
+        String key = status + '\u0000' + priority;
+        List<Task> cached = combined.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Bucket statusBucket = byStatus.get(status);
+        Bucket priorityBucket = byPriority.get(priority);
+        List<Task> matches = new ArrayList<>();
+        if (statusBucket != null && priorityBucket != null) {
+            boolean scanStatus = statusBucket.tasks.size() <= priorityBucket.tasks.size();
+            for (Task task : (scanStatus ? statusBucket : priorityBucket).tasks.values()) {
+                if (scanStatus ? Objects.equals(priority, task.getPriority())
+                        : Objects.equals(status, task.getStatus())) {
+                    matches.add(task);
+                }
+            }
+        }
+        cached = Collections.unmodifiableList(matches);
+        combined.put(key, cached);
+        return cached;
+    }
+
+    private static List<Task> view(Map<String, Bucket> buckets, String value) {
+        Bucket bucket = buckets.get(value);
+        return bucket == null ? Collections.emptyList() : bucket.view();
+    }
+
+    private static Bucket bucket(Map<String, Bucket> buckets, String value) {
+        Bucket bucket = buckets.get(value);
+        if (bucket == null) {
+            bucket = new Bucket();
+            buckets.put(value, bucket);
+        }
+        return bucket;
+    }
+
+    // One status or priority: its tasks, and the list last handed out until they change
+    private static class Bucket {
+        final TreeMap<String, Task> tasks = new TreeMap<>();
+        List<Task> view;
+
+        void put(Task task) {
+            tasks.put(task.getFirebaseId(), task);
+            view = null;
+        }
+
+        Task remove(String taskKey) {
+            Task removed = tasks.remove(taskKey);
+            if (removed != null) {
+                view = null;
+            }
+            return removed;
+        }
+
+        void clear() {
+            tasks.clear();
+            view = null;
+        }
+
+        List<Task> view() {
+            if (view == null) {
+                view = Collections.unmodifiableList(new ArrayList<>(tasks.values()));
+            }
+            return view;
+        }
+    }
+}
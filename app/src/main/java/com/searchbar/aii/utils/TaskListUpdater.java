@@ -0,0 +1,74 @@
+package com.searchbar.aii.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import androidx.recyclerview.widget.DiffUtil;
+import com.searchbar.aii.adapters.TaskAdapter;
+import com.searchbar.aii.models.Task;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Puts a list of tasks into a TaskAdapter without querying or diffing on the main thread.
+// Both run on a background thread and only the resulting patch is applied on the main
+// thread. Under a burst of updates the latest submit wins: older work that is still queued
+// or running is dropped as soon as it notices it has been superseded. A query with a limit
+// is run one past it, so the adapter knows whether there is more to page in (see TaskPager).
+public class TaskListUpdater {
+    private static final ExecutorService diffExecutor = Executors.newSingleThreadExecutor();
+
+    private final TaskAdapter adapter;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Bumped on every submit; work for an older one is thrown away
+    private volatile int generation;
+
+    public TaskListUpdater(TaskAdapter adapter) {
+        this.adapter = adapter;
+    }
+
+    // Call on the main thread. tasks and the Tasks in it must not change afterwards; query
+    // may be null to show them all. listener, if given, hears how many tasks were shown.
+    public void submit(List<Task> tasks, TaskQuery query, OnAppliedListener listener) {
+        final int requestGeneration = ++generation;
+        final List<Task> shown = adapter.getTasks();
+
+        diffExecutor.execute(() -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            int limit = query == null ? TaskQuery.NO_LIMIT : query.getLimit();
+            List<Task> filtered = limit == TaskQuery.NO_LIMIT
+                    ? (query == null ? tasks : query.run(tasks))
+                    : query.withLimit(limit + 1).run(tasks);
+            boolean hasMore = filtered.size() > limit;
+            if (hasMore) {
+                filtered = new ArrayList<>(filtered.subList(0, limit));
+            }
+            if (requestGeneration != generation) {
+                return;
+            }
+            final List<Task> page = filtered;
+            DiffUtil.DiffResult diff = TaskAdapter.diff(shown, page);
+
+            mainHandler.post(() -> {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                if (adapter.getTasks() != shown) {
+                    // Something else changed the adapter meanwhile; the diff no longer fits
+                    submit(tasks, query, listener);
+                    return;
+                }
+                adapter.applyDiff(page, diff, hasMore);
+                if (listener != null) {
+                    listener.onApplied(page.size());
+                }
+            });
+        });
+    }
+
+    public interface OnAppliedListener {
+        void onApplied(int count);
+    }
+}
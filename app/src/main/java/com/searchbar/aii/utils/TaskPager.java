@@ -0,0 +1,51 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.adapters.TaskAdapter;
+import com.searchbar.aii.models.Task;
+import java.util.List;
+
+// Feeds a TaskAdapter one page at a time, so the first screen only costs one page of
+// filtering, diffing and binding no matter how many tasks the user has. The tasks are
+// already in memory (TaskIndex, SearchScheduler); each page just raises the query's limit
+// and resubmits through TaskListUpdater, which diffs off the main thread.
+public class TaskPager {
+    public static final int PAGE_SIZE = 30;
+
+    private final TaskListUpdater listUpdater;
+
+    private List<Task> tasks;
+    private TaskQuery query;
+    private TaskListUpdater.OnAppliedListener listener;
+    private int pages = 1;
+
+    public TaskPager(TaskAdapter adapter) {
+        this.listUpdater = new TaskListUpdater(adapter);
+        adapter.setOnLoadMoreListener(this::loadNextPage);
+    }
+
+    // Call when the query changes; the next submit starts over from the first page
+    public void reset() {
+        pages = 1;
+    }
+
+    // Same contract as TaskListUpdater.submit, limited to the pages shown so far.
+    // query may be null to show them all.
+    public void submit(List<Task> tasks, TaskQuery query, TaskListUpdater.OnAppliedListener listener) {
+        this.tasks = tasks;
+        this.query = query == null ? TaskQuery.ALL : query;
+        this.listener = listener;
+        show();
+    }
+
+    private void loadNextPage() {
+        if (tasks != null) {
+            pages++;
+            show();
+        }
+    }
+
+    private void show() {
+        int limit = Math.min(query.getLimit(), pages * PAGE_SIZE);
+        listUpdater.submit(tasks, query.withLimit(limit), listener);
+    }
+}
@@ -0,0 +1,156 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.Task;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+// What the task list shows: the tab's status, a priority, a due date range and search text,
+// then an order and how many. Each control in MainActivity changes one part through a with
+// method, which returns a new query, so a query handed to another thread never changes.
+// run() answers the whole query in one pass over a list of candidates. Parts the caller
+// already answered from an index, like status and priority from TaskIndex or the text from
+// SearchScheduler, are cleared from the query it runs so they aren't checked twice.
+public class TaskQuery {
+    public static final int NO_LIMIT = Integer.MAX_VALUE;
+    public static final TaskQuery ALL = new TaskQuery(null, null, null, "", Sort.CREATED, NO_LIMIT);
+
+    private final String status;      // null for any
+    private final String priority;    // null for any
+    private final long[] dueDayRange; // first and last epoch day, null for any
+    private final String text;        // as typed, "" for no search
+    private final String normalizedText;
+    private final Sort sort;
+    private final int limit;
+
+    private TaskQuery(String status, String priority, long[] dueDayRange, String text, Sort sort, int limit) {
+        this.status = status;
+        this.priority = priority;
+        this.dueDayRange = dueDayRange;
+        this.text = text;
+        this.normalizedText = TaskSearchIndex.normalize(text);
+        this.sort = sort;
+        this.limit = limit;
+    }
+
+    public TaskQuery withStatus(String status) {
+        return new TaskQuery(status, priority, dueDayRange, text, sort, limit);
+    }
+
+    public TaskQuery withPriority(String priority) {
+        return new TaskQuery(status, priority, dueDayRange, text, sort, limit);
+    }
+
+    public TaskQuery withDueDayRange(long[] dueDayRange) {
+        return new TaskQuery(status, priority, dueDayRange == null ? null : dueDayRange.clone(), text, sort, limit);
+    }
+
+    public TaskQuery withText(String text) {
+        return new TaskQuery(status, priority, dueDayRange, text == null ? "" : text, sort, limit);
+    }
+
+    public TaskQuery sortedBy(Sort sort) {
+        return new TaskQuery(status, priority, dueDayRange, text, sort, limit);
+    }
+
+    public TaskQuery withLimit(int limit) {
+        return new TaskQuery(status, priority, dueDayRange, text, sort, limit);
+    }
+
+    public String getStatus() { return status; }
+
+    public String getPriority() { return priority; }
+
+    public boolean hasDueDayRange(long[] range) { return Arrays.equals(dueDayRange, range); }
+
+    // True when a status, priority or due filter narrows the tasks; text is not counted
+    public boolean isFiltered() { return status != null || priority != null || dueDayRange != null; }
+
+    public boolean hasSameFilter(TaskQuery other) {
+        return equal(status, other.status) && equal(priority, other.priority)
+                && Arrays.equals(dueDayRange, other.dueDayRange);
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    public String getText() { return text; }
+
+    public Sort getSort() { return sort; }
+
+    public int getLimit() { return limit; }
+
+    public boolean matches(Task task) {
+        if (status != null && !status.equals(task.getStatus())) {
+            return false;
+        }
+        if (priority != null && !priority.equals(task.getPriority())) {
+            return false;
+        }
+        if (dueDayRange != null) {
+            Long dueDay = task.getDueDay();
+            if (dueDay == null || dueDay < dueDayRange[0] || dueDay > dueDayRange[1]) {
+                return false;
+            }
+        }
+        return normalizedText.isEmpty()
+                || TaskSearchIndex.normalize(task.getTitle()).contains(normalizedText)
+                || TaskSearchIndex.normalize(task.getDescription()).contains(normalizedText);
+    }
+
+    // The candidates this query keeps, in its order and up to its limit. candidates isn't
+    // changed; when the query keeps all of them as they are it is returned itself.
+    public List<Task> run(List<Task> candidates) {
+        boolean filtering = status != null || priority != null || dueDayRange != null || !normalizedText.isEmpty();
+        if (!filtering && sort == Sort.CREATED && candidates.size() <= limit) {
+            return candidates;
+        }
+
+        // Unsorted, the pass can stop as soon as the limit is reached
+        int stopAt = sort == Sort.CREATED ? limit : NO_LIMIT;
+        List<Task> matches = new ArrayList<>();
+        for (Task task : candidates) {
+            if (matches.size() == stopAt) {
+                break;
+            }
+            if (!filtering || matches(task)) {
+                matches.add(task);
+            }
+        }
+        if (sort != Sort.CREATED) {
+            // Stable, so ties keep the candidates' order
+            Collections.sort(matches, sort.comparator);
+        }
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    public enum Sort {
+        // The order candidates come in, which for TaskIndex and the search index is creation order
+        CREATED(null),
+        // Soonest first, tasks without a due date last
+        DUE_DATE((a, b) -> {
+            Long dueA = a.getDueDay();
+            Long dueB = b.getDueDay();
+            if (dueA == null || dueB == null) {
+                return dueA == null ? (dueB == null ? 0 : 1) : -1;
+            }
+            return Long.compare(dueA, dueB);
+        }),
+        // High, Medium, Low, then anything else
+        PRIORITY((a, b) -> Integer.compare(priorityRank(a), priorityRank(b)));
+
+        private final Comparator<Task> comparator;
+
+        Sort(Comparator<Task> comparator) {
+            this.comparator = comparator;
+        }
+
+        private static int priorityRank(Task task) {
+            String priority = task.getPriority();
+            return "High".equals(priority) ? 0 : "Medium".equals(priority) ? 1 : "Low".equals(priority) ? 2 : 3;
+        }
+    }
+}
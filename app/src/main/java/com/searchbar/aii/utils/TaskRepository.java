@@ -0,0 +1,430 @@
+package com.searchbar.aii.utils;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import com.searchbar.aii.models.Task;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// App-wide owner of the task subscription. However many screens observe tasks, and however
+// often they resume, there is at most one listener on the backend. It is attached when the
+// first observer arrives and cancelled when the last one leaves. Use from one thread: the
+// main thread in the app, where Firebase delivers its events.
+//
+// Tasks are also kept in a local cache. On attach the cached tasks are shown straight away
+// and only tasks updated since the newest one in the cache are fetched; deletes arrive as
+// tombstones, which are dropped from the visible tasks. The app only caches once installs
+// from before the compact schema are no longer supported (see getInstance).
+//
+// Writes are optimistic: observers see a change as soon as it is made, not when the store
+// echoes it back. Until then it is kept as a pending op and reapplied on top of whatever
+// the store reports for that task, so remote edits to the task still show. If the store
+// rejects the write, straight away or later on, the op is dropped and observers see the
+// task as it was. An op whose echo hasn't come a minute later is dropped the same way.
+public class TaskRepository {
+    // A pending op whose echo never came (say, the task was deleted elsewhere) is let go
+    static final long PENDING_TIMEOUT_MS = 60_000;
+
+    private static TaskRepository instance;
+
+    private final TaskStore store;
+    private final TaskCache cache;
+    private final Scheduler scheduler;
+    private final List<FirebaseHelper.OnTaskChangeListener> observers = new ArrayList<>();
+    // What the store last reported, and what observers see: that plus pending ops
+    private final Map<String, Task> confirmedById = new HashMap<>();
+    private final Map<String, Task> tasksById = new LinkedHashMap<>();
+    private final Map<String, List<PendingOp>> pendingById = new HashMap<>();
+    private Cancellable subscription;
+
+    public static synchronized TaskRepository getInstance(Context context) {
+        if (instance == null) {
+            FirebaseHelper firebaseHelper = new FirebaseHelper(context.getApplicationContext());
+            // Installs from before the compact schema don't stamp updatedAt and delete by
+            // removing the node, which a delta fetch never hears about. While they are
+            // supported every attach is a full load and nothing is cached to go stale.
+            TaskCache cache = TaskCodec.LEGACY_INSTALLS_SUPPORTED ? NO_CACHE
+                    : new SyncedTaskCache(DatabaseHelper.getInstance(context),
+                            TaskWriter.getInstance(context), firebaseHelper);
+            instance = new TaskRepository(new FirebaseTaskStore(firebaseHelper, Outbox.getInstance(context)),
+                    cache, new Handler(Looper.getMainLooper())::postDelayed);
+        }
+        return instance;
+    }
+
+    TaskRepository(TaskStore store, TaskCache cache, Scheduler scheduler) {
+        this.store = store;
+        this.cache = cache;
+        this.scheduler = scheduler;
+        store.setOnWriteRejectedListener(this::onWriteRejected);
+    }
+
+    // Starts delivering changes to observer, beginning with an onTaskAdded for every task
+    // already loaded. Call removeObserver when the screen stops.
+    public void addObserver(FirebaseHelper.OnTaskChangeListener observer) {
+        if (observers.contains(observer)) {
+            return;
+        }
+        if (subscription == null) {
+            for (Task task : cache.load()) {
+                confirmedById.put(task.getFirebaseId(), task);
+                tasksById.put(task.getFirebaseId(), task);
+            }
+            // Writes made while nobody was observing
+            for (String taskKey : new ArrayList<>(pendingById.keySet())) {
+                refresh(taskKey);
+            }
+        }
+        observers.add(observer);
+        for (Task task : new ArrayList<>(tasksById.values())) {
+            observer.onTaskAdded(task);
+        }
+        if (subscription == null) {
+            subscription = store.observeTasks(cache.getWatermark(),
+                    new ArrayList<>(confirmedById.keySet()), dispatcher);
+        }
+    }
+
+    // Pending ops are kept, so a write made with no screen observing still shows on return
+    public void removeObserver(FirebaseHelper.OnTaskChangeListener observer) {
+        observers.remove(observer);
+        if (observers.isEmpty() && subscription != null) {
+            subscription.cancel();
+            subscription = null;
+            confirmedById.clear();
+            tasksById.clear();
+        }
+    }
+
+    // ==================== WRITES ====================
+
+    public String addTask(Task task) {
+        String taskKey = store.addTask(task);
+        // A store that notifies synchronously has already delivered it
+        if (taskKey != null && !confirmedById.containsKey(taskKey)) {
+            addPending(taskKey, new PendingOp(PendingOp.ADD, TaskCodec.copyOf(task)));
+        }
+        return taskKey;
+    }
+
+    public boolean updateTaskStatus(String taskKey, String status) {
+        PendingOp op = new PendingOp(PendingOp.STATUS, status);
+        addPending(taskKey, op);
+        if (!store.updateTaskStatus(taskKey, status)) {
+            rollback(taskKey, op);
+            return false;
+        }
+        return true;
+    }
+
+    public boolean deleteTask(String taskKey) {
+        PendingOp op = new PendingOp(PendingOp.DELETE, null);
+        addPending(taskKey, op);
+        if (!store.deleteTask(taskKey)) {
+            rollback(taskKey, op);
+            return false;
+        }
+        return true;
+    }
+
+    // Forgets every unconfirmed write, e.g. on logout so the next user doesn't see them
+    public void clearPendingWrites() {
+        for (String taskKey : new ArrayList<>(pendingById.keySet())) {
+            pendingById.remove(taskKey);
+            refresh(taskKey);
+        }
+    }
+
+    // Bulk actions on the selection: every task shows the change at once, and the store
+    // gets a single write for all of them, rolled back together if it fails
+    public boolean updateTasksStatus(Collection<String> taskKeys, String status) {
+        List<String> keys = new ArrayList<>(taskKeys);
+        List<PendingOp> ops = addPending(keys, PendingOp.STATUS, status);
+        if (!store.updateTasksStatus(keys, status)) {
+            rollback(keys, ops);
+            return false;
+        }
+        return true;
+    }
+
+    public boolean deleteTasks(Collection<String> taskKeys) {
+        List<String> keys = new ArrayList<>(taskKeys);
+        List<PendingOp> ops = addPending(keys, PendingOp.DELETE, null);
+        if (!store.deleteTasks(keys)) {
+            rollback(keys, ops);
+            return false;
+        }
+        return true;
+    }
+
+    public boolean reassignTasks(Collection<String> taskKeys, String assignedTo) {
+        List<String> keys = new ArrayList<>(taskKeys);
+        List<PendingOp> ops = addPending(keys, PendingOp.ASSIGN, assignedTo);
+        if (!store.reassignTasks(keys, assignedTo)) {
+            rollback(keys, ops);
+            return false;
+        }
+        return true;
+    }
+
+    public int getPendingCount() {
+        int count = 0;
+        for (List<PendingOp> ops : pendingById.values()) {
+            count += ops.size();
+        }
+        return count;
+    }
+
+    private void addPending(String taskKey, PendingOp op) {
+        List<PendingOp> ops = pendingById.get(taskKey);
+        if (ops == null) {
+            ops = new ArrayList<>();
+            pendingById.put(taskKey, ops);
+        }
+        ops.add(op);
+        refresh(taskKey);
+        scheduler.schedule(() -> rollback(taskKey, op), PENDING_TIMEOUT_MS);
+    }
+
+    private List<PendingOp> addPending(List<String> taskKeys, int type, Object value) {
+        List<PendingOp> ops = new ArrayList<>(taskKeys.size());
+        for (String taskKey : taskKeys) {
+            PendingOp op = new PendingOp(type, value);
+            addPending(taskKey, op);
+            ops.add(op);
+        }
+        return ops;
+    }
+
+    private void rollback(List<String> taskKeys, List<PendingOp> ops) {
+        for (int i = 0; i < taskKeys.size(); i++) {
+            rollback(taskKeys.get(i), ops.get(i));
+        }
+    }
+
+    private void rollback(String taskKey, PendingOp op) {
+        List<PendingOp> ops = pendingById.get(taskKey);
+        if (ops != null && ops.remove(op)) {
+            if (ops.isEmpty()) {
+                pendingById.remove(taskKey);
+            }
+            refresh(taskKey);
+        }
+    }
+
+    // A write the store accepted but later gave up on; what else is pending for those tasks
+    // was queued behind it, so it goes too
+    private void onWriteRejected(Collection<String> taskKeys, String error) {
+        for (String taskKey : taskKeys) {
+            if (pendingById.remove(taskKey) != null) {
+                refresh(taskKey);
+            }
+        }
+    }
+
+    // The store delivers a task's changes in write order, so an echo can only confirm the
+    // oldest pending op. Anything else is a remote change, which the ops are rebased onto.
+    private void reconcile(String taskKey) {
+        List<PendingOp> ops = pendingById.get(taskKey);
+        if (ops == null) {
+            return;
+        }
+        if (ops.get(0).isConfirmedBy(confirmedById.get(taskKey))) {
+            ops.remove(0);
+        }
+        if (ops.isEmpty()) {
+            pendingById.remove(taskKey);
+        }
+    }
+
+    // Recomputes what observers see for one task and tells them what changed
+    private void refresh(String taskKey) {
+        Task visible = confirmedById.get(taskKey);
+        List<PendingOp> ops = pendingById.get(taskKey);
+        if (ops != null) {
+            for (PendingOp op : ops) {
+                visible = op.applyTo(visible);
+            }
+        }
+
+        Task previous = visible == null ? tasksById.remove(taskKey) : tasksById.put(taskKey, visible);
+        if (previous == visible) {
+            return;
+        }
+        for (FirebaseHelper.OnTaskChangeListener observer : new ArrayList<>(observers)) {
+            if (visible == null) {
+                observer.onTaskRemoved(taskKey);
+            } else if (previous == null) {
+                observer.onTaskAdded(visible);
+            } else {
+                observer.onTaskChanged(visible);
+            }
+        }
+    }
+
+    // ==================== READS ====================
+
+    // Asks the store for the next older slice of tasks (a month bucket in Firebase); they
+    // arrive as onTaskAdded. Called when the list is scrolled to the end or a search comes
+    // up empty. Does nothing when no screen is observing.
+    public void loadOlderTasks() {
+        if (subscription != null) {
+            store.loadOlderTasks();
+        }
+    }
+
+    // Current tasks in Firebase key order, including local writes not yet confirmed
+    public Collection<Task> getTasks() {
+        return Collections.unmodifiableCollection(tasksById.values());
+    }
+
+    public Task getTask(String firebaseId) {
+        return tasksById.get(firebaseId);
+    }
+
+    // Records what the store reports, then refreshes the visible task from it
+    private final FirebaseHelper.OnTaskChangeListener dispatcher = new FirebaseHelper.OnTaskChangeListener() {
+        @Override
+        public void onTaskAdded(Task task) {
+            apply(task);
+        }
+
+        @Override
+        public void onTaskChanged(Task task) {
+            apply(task);
+        }
+
+        // A delta fetch re-sends tasks that are already cached, so "added" and "changed"
+        // are decided against what is held, not by which Firebase event brought it
+        private void apply(Task task) {
+            cache.save(task);
+            if (task.isDeleted()) {
+                confirmedById.remove(task.getFirebaseId());
+            } else {
+                confirmedById.put(task.getFirebaseId(), task);
+            }
+            reconcile(task.getFirebaseId());
+            refresh(task.getFirebaseId());
+        }
+
+        @Override
+        public void onTaskRemoved(String firebaseId) {
+            cache.remove(firebaseId);
+            confirmedById.remove(firebaseId);
+            reconcile(firebaseId);
+            refresh(firebaseId);
+        }
+
+        @Override
+        public void onTaskMoved(String firebaseId, String previousFirebaseId) {
+            for (FirebaseHelper.OnTaskChangeListener observer : new ArrayList<>(observers)) {
+                observer.onTaskMoved(firebaseId, previousFirebaseId);
+            }
+        }
+
+        @Override
+        public void onError(String error) {
+            for (FirebaseHelper.OnTaskChangeListener observer : new ArrayList<>(observers)) {
+                observer.onError(error);
+            }
+        }
+    };
+
+    // A local write not yet echoed back by the store
+    private static class PendingOp {
+        static final int ADD = 0;
+        static final int STATUS = 1;
+        static final int DELETE = 2;
+        static final int ASSIGN = 3;
+
+        final int type;
+        final Object value;  // the new Task for ADD, the status for STATUS, the assignee for ASSIGN
+
+        PendingOp(int type, Object value) {
+            this.type = type;
+            this.value = value;
+        }
+
+        Task applyTo(Task task) {
+            switch (type) {
+                case ADD:
+                    return task != null ? task : (Task) value;
+                case STATUS:
+                    if (task == null) {
+                        return null;
+                    }
+                    Task updated = TaskCodec.copyOf(task);
+                    updated.setStatus((String) value);
+                    return updated;
+                case ASSIGN:
+                    if (task == null) {
+                        return null;
+                    }
+                    Task reassigned = TaskCodec.copyOf(task);
+                    reassigned.setAssignedTo((String) value);
+                    return reassigned;
+                default:
+                    return null;
+            }
+        }
+
+        boolean isConfirmedBy(Task confirmed) {
+            switch (type) {
+                case ADD:
+                    return confirmed != null;
+                case STATUS:
+                    return confirmed != null && value.equals(confirmed.getStatus());
+                case ASSIGN:
+                    return confirmed != null && value.equals(confirmed.getAssignedTo());
+                default:
+                    return confirmed == null;
+            }
+        }
+    }
+
+    // Tasks kept between launches: SyncedTaskCache in the app, a fake in tests
+    public interface TaskCache {
+        List<Task> load();
+
+        // Newest updatedAt stored, or null when there is nothing to sync from
+        Long getWatermark();
+
+        void save(Task task);
+
+        void remove(String firebaseId);
+    }
+
+    // Keeps nothing, so every attach loads everything from the store
+    static final TaskCache NO_CACHE = new TaskCache() {
+        @Override
+        public List<Task> load() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Long getWatermark() {
+            return null;
+        }
+
+        @Override
+        public void save(Task task) {}
+
+        @Override
+        public void remove(String firebaseId) {}
+    };
+
+    public interface Cancellable {
+        void cancel();
+    }
+
+    // Runs work on the main thread after a delay: a Handler in the app, by hand in tests
+    interface Scheduler {
+        void schedule(Runnable work, long delayMillis);
+    }
+}
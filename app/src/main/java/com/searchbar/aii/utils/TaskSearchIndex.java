@@ -0,0 +1,289 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.Task;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Substring search over task titles and descriptions without scanning every task. Text is
+// normalized once per change (lowercased, accents folded, so "cafe" finds "Café") and every
+// three-character run of it is indexed. A query of three characters or more is answered by
+// intersecting the lists of tasks holding each of its trigrams, then checking those few
+// candidates for the whole query. Shorter queries match most tasks anyway and are a plain
+// scan of the normalized text, which still allocates nothing per task.
+// Typing narrows the query one character at a time, so when a query extends the previous
+// one only the previous matches are checked again.
+// Results come in key order, which is creation order, like TaskIndex's. Use from one thread.
+public class TaskSearchIndex {
+    // Between title and description, so a query can't match across the two
+    private static final char FIELD_SEPARATOR = '\u0000';
+    private static final int CANCEL_CHECK_INTERVAL = 1_024;
+
+    private final Map<String, Integer> idByKey = new HashMap<>();
+    private final List<Task> tasks = new ArrayList<>();    // by id, null once removed
+    private final List<String> texts = new ArrayList<>();  // normalized, by id
+    private final Map<Long, IntList> postings = new HashMap<>();
+    private int removed;
+    // The last search, reusable until the index changes
+    private String lastQuery;
+    private IntList lastMatches;
+
+    // Adds the task, or updates the one with its key
+    public void put(Task task) {
+        lastQuery = null;
+        String text = normalize(task.getTitle()) + FIELD_SEPARATOR + normalize(task.getDescription());
+        Integer id = idByKey.get(task.getFirebaseId());
+        if (id == null) {
+            id = tasks.size();
+            idByKey.put(task.getFirebaseId(), id);
+            tasks.add(task);
+            texts.add(text);
+            for (long trigram : trigrams(text)) {
+                postingsFor(trigram).add(id);
+            }
+            return;
+        }
+
+        tasks.set(id, task);
+        String oldText = texts.get(id);
+        if (oldText.equals(text)) {
+            return;
+        }
+        texts.set(id, text);
+        Set<Long> oldTrigrams = trigrams(oldText);
+        Set<Long> newTrigrams = trigrams(text);
+        for (long trigram : oldTrigrams) {
+            if (!newTrigrams.contains(trigram)) {
+                postings.get(trigram).remove(id);
+            }
+        }
+        for (long trigram : newTrigrams) {
+            if (!oldTrigrams.contains(trigram)) {
+                postingsFor(trigram).add(id);
+            }
+        }
+    }
+
+    public void remove(String taskKey) {
+        Integer id = idByKey.remove(taskKey);
+        if (id == null) {
+            return;
+        }
+        lastQuery = null;
+        for (long trigram : trigrams(texts.get(id))) {
+            postings.get(trigram).remove(id);
+        }
+        tasks.set(id, null);
+        texts.set(id, "");
+        removed++;
+        // Ids aren't reused, so renumber once most of them are gone
+        if (removed > 1_000 && removed > idByKey.size()) {
+            rebuild();
+        }
+    }
+
+    public void clear() {
+        idByKey.clear();
+        tasks.clear();
+        texts.clear();
+        postings.clear();
+        removed = 0;
+        lastQuery = null;
+    }
+
+    public int size() {
+        return idByKey.size();
+    }
+
+    // Tasks whose title or description contains query, ignoring case and accents. The list
+    // isn't shared with the index, so it can be handed to another thread.
+    public List<Task> search(String query) {
+        return search(query, null);
+    }
+
+    // As search(query), but gives up and returns null once cancellation says so. It is
+    // checked every CANCEL_CHECK_INTERVAL tasks looked at.
+    public List<Task> search(String query, Cancellation cancellation) {
+        String normalized = normalize(query);
+        IntList matches;
+        if (lastQuery != null && normalized.contains(lastQuery)) {
+            matches = filter(lastMatches, normalized, cancellation);
+        } else if (normalized.length() < 3) {
+            matches = scan(normalized, cancellation);
+        } else {
+            matches = intersect(normalized, cancellation);
+        }
+        if (matches == null) {
+            return null;
+        }
+        lastQuery = normalized;
+        lastMatches = matches;
+
+        List<Task> results = new ArrayList<>(matches.size);
+        for (int i = 0; i < matches.size; i++) {
+            results.add(tasks.get(matches.values[i]));
+        }
+        // Ids follow the order tasks arrived in, and older months arrive after newer ones
+        Collections.sort(results, (a, b) -> a.getFirebaseId().compareTo(b.getFirebaseId()));
+        return results;
+    }
+
+    private IntList scan(String normalized, Cancellation cancellation) {
+        IntList matches = new IntList();
+        for (int id = 0; id < texts.size(); id++) {
+            if (isCancelled(cancellation, id)) {
+                return null;
+            }
+            if (tasks.get(id) != null && texts.get(id).contains(normalized)) {
+                matches.append(id);
+            }
+        }
+        return matches;
+    }
+
+    // Walks the shortest trigram list and probes the others
+    private IntList intersect(String normalized, Cancellation cancellation) {
+        IntList matches = new IntList();
+        List<IntList> lists = new ArrayList<>();
+        for (long trigram : trigrams(normalized)) {
+            IntList list = postings.get(trigram);
+            if (list == null || list.size == 0) {
+                return matches;
+            }
+            lists.add(list);
+        }
+        Collections.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+
+        IntList shortest = lists.get(0);
+        for (int i = 0; i < shortest.size; i++) {
+            if (isCancelled(cancellation, i)) {
+                return null;
+            }
+            int id = shortest.values[i];
+            boolean inAll = true;
+            for (int j = 1; j < lists.size() && inAll; j++) {
+                inAll = lists.get(j).contains(id);
+            }
+            // Every trigram present doesn't mean they're adjacent, so confirm the substring
+            if (inAll && texts.get(id).contains(normalized)) {
+                matches.append(id);
+            }
+        }
+        return matches;
+    }
+
+    private IntList filter(IntList ids, String normalized, Cancellation cancellation) {
+        IntList matches = new IntList();
+        for (int i = 0; i < ids.size; i++) {
+            if (isCancelled(cancellation, i)) {
+                return null;
+            }
+            if (texts.get(ids.values[i]).contains(normalized)) {
+                matches.append(ids.values[i]);
+            }
+        }
+        return matches;
+    }
+
+    private static boolean isCancelled(Cancellation cancellation, int step) {
+        return cancellation != null && step % CANCEL_CHECK_INTERVAL == 0 && cancellation.isCancelled();
+    }
+
+    // Lowercase with accents removed: "Crème Brûlée" becomes "creme brulee"
+    static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                folded.append(c);
+            }
+        }
+        return folded.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private void rebuild() {
+        List<Task> live = new ArrayList<>();
+        for (Task task : tasks) {
+            if (task != null) {
+                live.add(task);
+            }
+        }
+        clear();
+        for (Task task : live) {
+            put(task);
+        }
+    }
+
+    private IntList postingsFor(long trigram) {
+        IntList list = postings.get(trigram);
+        if (list == null) {
+            list = new IntList();
+            postings.put(trigram, list);
+        }
+        return list;
+    }
+
+    // Each run of three characters packed into one long
+    private static Set<Long> trigrams(String text) {
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            trigrams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return trigrams;
+    }
+
+    public interface Cancellation {
+        boolean isCancelled();
+    }
+
+    // Sorted task ids without boxing
+    private static class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+        }
+
+        void remove(int value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, size - index - 1);
+                size--;
+            }
+        }
+
+        // For values known to be larger than any held
+        void append(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        boolean contains(int value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.Task;
+import java.util.Collection;
+
+// Where tasks are kept. TaskRepository reads and writes through this, so the backend can be
+// Firebase in the app, or SQLite or memory when the data layer is tested or benchmarked
+// without a Firebase project. Task keys are strings whatever the backend uses underneath.
+public interface TaskStore {
+
+    // Stores a new task, sets its key (firebaseId) and returns it, or null on failure
+    String addTask(Task task);
+
+    boolean updateTaskStatus(String taskKey, String status);
+
+    boolean deleteTask(String taskKey);
+
+    // Bulk versions: one write for all the tasks, which a backend with multi-path writes
+    // applies all together or not at all
+    boolean updateTasksStatus(Collection<String> taskKeys, String status);
+
+    boolean deleteTasks(Collection<String> taskKeys);
+
+    boolean reassignTasks(Collection<String> taskKeys, String assignedTo);
+
+    // Delivers every task updated at or after updatedSince (all of them when it is null) as
+    // onTaskAdded, then each change as it happens. A deleted task arrives either as a
+    // tombstone (Task.isDeleted) or as onTaskRemoved, depending on the backend.
+    // A backend that partitions tasks may deliver only its recent partitions at first, plus
+    // the partitions of heldKeys, the tasks the caller already has from earlier syncs.
+    // Returns the handle that stops delivery, or null if it could not start.
+    TaskRepository.Cancellable observeTasks(Long updatedSince, Collection<String> heldKeys,
+                                            FirebaseHelper.OnTaskChangeListener listener);
+
+    // Extends the running observation to the next older partition, if the backend has
+    // partitions and there is one. Its tasks arrive as onTaskAdded.
+    void loadOlderTasks();
+
+    // Tells listener, on the main thread, about writes that returned true but that the
+    // backend later gave up on for good, such as ones the server denied. Backends whose
+    // writes fail only by returning false never call it.
+    void setOnWriteRejectedListener(OnWriteRejectedListener listener);
+
+    interface OnWriteRejectedListener {
+        // taskKeys are the tasks the rejected writes touched
+        void onWriteRejected(Collection<String> taskKeys, String error);
+    }
+}
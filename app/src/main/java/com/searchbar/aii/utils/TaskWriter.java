@@ -0,0 +1,257 @@
+package com.searchbar.aii.utils;
+
+import android.content.Context;
+import android.os.Looper;
+import com.searchbar.aii.models.Task;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Single background writer for DatabaseHelper. Callers get a Future straight away; writes
+// are collected for a short window and committed together in one transaction. A status
+// change or delete replaces any queued write for the same task, so rapid checkbox
+// toggles end up as one UPDATE. A status change replaced by a delete, or queued after one,
+// resolves to false, since the row it would update is gone. Futures complete only once
+// the transaction has committed; if it fails, every write in it fails with the error.
+public class TaskWriter {
+    private static final long COALESCE_WINDOW_MS = 50;
+
+    private static TaskWriter instance;
+
+    private final DatabaseHelper databaseHelper;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    // Writes keyed by task id replace each other, inserts are keyed by a unique object
+    private Map<Object, Mutation<?>> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+
+    // Metrics
+    private long committedWrites;
+    private long coalescedWrites;
+    private long batches;
+    private long commitNanos;
+    private long mainThreadBlockedNanos;
+
+    public static synchronized TaskWriter getInstance(Context context) {
+        if (instance == null) {
+            instance = new TaskWriter(DatabaseHelper.getInstance(context));
+        }
+        return instance;
+    }
+
+    TaskWriter(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    // Resolves to the new row id, or -1 if the insert failed
+    public Future<Long> insert(Task task) {
+        return enqueue(new Object(), new Mutation<>(false, () -> databaseHelper.insertTask(task)));
+    }
+
+    public Future<Boolean> updateStatus(int taskId, String status) {
+        Mutation<Boolean> update = new Mutation<>(false, () -> databaseHelper.updateTaskStatus(taskId, status));
+        synchronized (this) {
+            Mutation<?> queued = pending.get(taskId);
+            if (queued != null && queued.delete) {
+                update.resolve(false);
+                coalescedWrites++;
+                return update;
+            }
+        }
+        return enqueue(taskId, update);
+    }
+
+    public Future<Boolean> delete(int taskId) {
+        return enqueue(taskId, new Mutation<>(true, () -> databaseHelper.deleteTask(taskId)));
+    }
+
+    // SyncedTaskCache's writes, keyed by owner and Firebase key, so a burst of events for
+    // one task (say, the initial load and then an echo) is stored once
+    public Future<Boolean> saveSynced(String owner, Task task) {
+        return enqueue(syncedKey(owner, task.getFirebaseId()), new Mutation<>(false, () -> {
+            databaseHelper.saveSyncedTask(owner, task);
+            return true;
+        }));
+    }
+
+    public Future<Boolean> deleteSynced(String owner, String firebaseId) {
+        return enqueue(syncedKey(owner, firebaseId), new Mutation<>(true, () -> {
+            databaseHelper.deleteSyncedTask(owner, firebaseId);
+            return true;
+        }));
+    }
+
+    public synchronized Metrics getMetrics() {
+        return new Metrics(committedWrites, coalescedWrites, batches, commitNanos, mainThreadBlockedNanos);
+    }
+
+    // For tests; queued writes still run
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private static String syncedKey(String owner, String firebaseId) {
+        return "synced:" + owner + "/" + firebaseId;
+    }
+
+    private <T> Future<T> enqueue(Object key, Mutation<T> mutation) {
+        long start = System.nanoTime();
+        synchronized (this) {
+            Mutation<?> replaced = pending.remove(key);
+            if (replaced != null) {
+                mutation.superseded.add(replaced);
+                mutation.superseded.addAll(replaced.superseded);
+                replaced.superseded.clear();
+                coalescedWrites++;
+            }
+            pending.put(key, mutation);
+
+            if (!flushScheduled) {
+                flushScheduled = true;
+                executor.schedule(this::flush, COALESCE_WINDOW_MS, TimeUnit.MILLISECONDS);
+            }
+
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                mainThreadBlockedNanos += System.nanoTime() - start;
+            }
+        }
+        return mutation;
+    }
+
+    private void flush() {
+        final List<Mutation<?>> batch;
+        synchronized (this) {
+            batch = new ArrayList<>(pending.values());
+            pending = new LinkedHashMap<>();
+            flushScheduled = false;
+        }
+
+        long start = System.nanoTime();
+        try {
+            databaseHelper.runInTransaction(() -> {
+                for (Mutation<?> mutation : batch) {
+                    // A failing write keeps its exception to itself, the rest still commit
+                    mutation.apply();
+                }
+            });
+        } catch (RuntimeException e) {
+            for (Mutation<?> mutation : batch) {
+                mutation.fail(e);
+            }
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        for (Mutation<?> mutation : batch) {
+            mutation.publish();
+        }
+
+        synchronized (this) {
+            committedWrites += batch.size();
+            batches++;
+            commitNanos += elapsed;
+        }
+    }
+
+    // A FutureTask that is never run: the writer thread does the work inside the batch's
+    // transaction and completes the future after the commit
+    private static class Mutation<T> extends FutureTask<T> {
+        // Earlier writes to the same task that this one replaced; they get its result
+        final List<Mutation<?>> superseded = new ArrayList<>();
+        final boolean delete;
+        private final Callable<T> work;
+        private T result;
+        private Exception error;
+
+        Mutation(boolean delete, Callable<T> work) {
+            super(() -> {
+                throw new IllegalStateException("Completed by TaskWriter");
+            });
+            this.delete = delete;
+            this.work = work;
+        }
+
+        // Completes without running the work
+        void resolve(T value) {
+            set(value);
+        }
+
+        // Inside the transaction
+        void apply() {
+            try {
+                result = work.call();
+            } catch (Exception e) {
+                error = e;
+            }
+        }
+
+        // After the commit
+        @SuppressWarnings("unchecked")
+        void publish() {
+            complete(this, result, error);
+            for (Mutation<?> earlier : superseded) {
+                if (delete && !earlier.delete) {
+                    // A status change replaced by a delete never reached its row
+                    ((Mutation<Object>) earlier).set(false);
+                } else {
+                    complete((Mutation<Object>) earlier, result, error);
+                }
+            }
+        }
+
+        void fail(Throwable e) {
+            setException(e);
+            for (Mutation<?> earlier : superseded) {
+                earlier.setException(e);
+            }
+        }
+
+        private static <V> void complete(Mutation<V> mutation, Object result, Exception error) {
+            if (error != null) {
+                mutation.setException(error);
+            } else {
+                @SuppressWarnings("unchecked")
+                V value = (V) result;
+                mutation.set(value);
+            }
+        }
+    }
+
+    public static class Metrics {
+        private final long committedWrites;
+        private final long coalescedWrites;
+        private final long batches;
+        private final long commitNanos;
+        private final long mainThreadBlockedNanos;
+
+        Metrics(long committedWrites, long coalescedWrites, long batches,
+                long commitNanos, long mainThreadBlockedNanos) {
+            this.committedWrites = committedWrites;
+            this.coalescedWrites = coalescedWrites;
+            this.batches = batches;
+            this.commitNanos = commitNanos;
+            this.mainThreadBlockedNanos = mainThreadBlockedNanos;
+        }
+
+        public long getCommittedWrites() { return committedWrites; }
+
+        public long getCoalescedWrites() { return coalescedWrites; }
+
+        public long getBatches() { return batches; }
+
+        // Committed writes per second of time spent inside write transactions
+        public double getWritesPerSecond() {
+            return commitNanos == 0 ? 0 : committedWrites * 1_000_000_000.0 / commitNanos;
+        }
+
+        // Total time main-thread callers spent queueing writes
+        public long getMainThreadBlockedNanos() { return mainThreadBlockedNanos; }
+    }
+}
@@ -0,0 +1,63 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class CursorTaskListTest {
+
+    private static final int ROWS = 100_000;
+
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        databaseHelper = DatabaseHelper.getInstance(RuntimeEnvironment.getApplication());
+        List<Task> tasks = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Task task = new Task("Task " + i, "Description " + i, "", "Low", "Pending", "", 1);
+            task.setCreatedAt(i);
+            tasks.add(task);
+        }
+        databaseHelper.addTasks(tasks);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+
+    @Test
+    public void lazyList_matchesEagerOrder() {
+        CursorTaskList lazy = databaseHelper.getAllTasksLazy(1);
+
+        assertEquals(ROWS, lazy.size());
+        assertEquals("Task 99999", lazy.get(0).getTitle());
+        assertEquals("Task 0", lazy.get(ROWS - 1).getTitle());
+        assertSame(lazy.get(10), lazy.get(10));
+        lazy.close();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void lazyList_isReadOnly() {
+        CursorTaskList lazy = databaseHelper.getAllTasksLazy(1);
+        try {
+            lazy.remove(0);
+        } finally {
+            lazy.close();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.searchbar.aii.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.AbstractWindowedCursor;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.searchbar.aii.models.Task;
+import com.searchbar.aii.models.TaskSummary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Throughput, latency and heap figures for {@link DatabaseHelper} at tens of thousands of
+ * rows: shared connection against open-write-close, FTS search, summary rows and the lazy
+ * cursor list. Prints its figures; heap use is read after System.gc(), which is only a
+ * hint, so nothing here is asserted on. Ignored by default because it takes minutes under
+ * Robolectric. Remove the @Ignore to run it.
+ */
+@Ignore("Benchmark, run by hand")
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class DatabaseHelperBenchmarkTest {
+
+    private static final int OPERATIONS = 10_000;
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        databaseHelper = DatabaseHelper.getInstance(context);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+
+    @Test
+    public void mixedOperations_beforeAndAfter() {
+        long legacyNanos = runLegacy(new File(context.getCacheDir(), "legacy.db"));
+        long pooledNanos = runPooled();
+
+        System.out.println(String.format("DatabaseHelper mixed ops: before %.0f ops/sec, after %.0f ops/sec",
+                opsPerSecond(legacyNanos), opsPerSecond(pooledNanos)));
+
+        assertEquals(expectedRemaining(), databaseHelper.getAllTasks(1).size());
+    }
+
+    @Test
+    public void searchLatency_at100kTasks() {
+        List<String> words = Arrays.asList("report", "groceries", "meeting", "invoice", "gym", "travel");
+        List<Task> tasks = new ArrayList<>(100_000);
+        for (int i = 0; i < 100_000; i++) {
+            Task task = new Task(words.get(i % words.size()) + " " + i, "note number " + i,
+                    "1/1/2025", "Low", "Pending", "", 1);
+            task.setCreatedAt(i);
+            tasks.add(task);
+        }
+        databaseHelper.addTasks(tasks);
+        databaseHelper.addTask(new Task("Quarterly zebra review", "", "1/1/2025", "Low", "Pending", "", 1));
+
+        long start = System.nanoTime();
+        List<Task> results = databaseHelper.searchTasks(1, "zebr");
+        long micros = (System.nanoTime() - start) / 1000;
+
+        System.out.println("searchTasks at 100k tasks: " + micros + " us, " + results.size() + " match");
+    }
+
+    @Test
+    public void summaryHeapAndCursorWindow_at50kRows() {
+        char[] text = new char[2_000];
+        Arrays.fill(text, 'd');
+        List<Task> tasks = new ArrayList<>(50_000);
+        for (int i = 0; i < 50_000; i++) {
+            tasks.add(new Task("Task " + i, new String(text), "1/1/2025", "Low", "Pending", "", 1));
+        }
+        databaseHelper.addTasks(tasks);
+        tasks = null;
+
+        Cursor full = databaseHelper.getReadableDatabase().query("tasks", null, "user_id=?",
+                new String[]{"1"}, null, null, "created_at DESC, id DESC");
+        Cursor summary = databaseHelper.queryTaskSummaries(1, null);
+        full.moveToFirst();
+        summary.moveToFirst();
+        int fullRowsPerWindow = ((AbstractWindowedCursor) full).getWindow().getNumRows();
+        int summaryRowsPerWindow = ((AbstractWindowedCursor) summary).getWindow().getNumRows();
+        full.close();
+        summary.close();
+
+        long before = usedHeap();
+        List<Task> fullList = databaseHelper.getAllTasks(1);
+        long fullHeap = usedHeap() - before;
+        fullList = null;
+
+        before = usedHeap();
+        List<TaskSummary> summaryList = databaseHelper.getTaskSummaries(1, null);
+        long summaryHeap = usedHeap() - before;
+
+        System.out.println(String.format("50k rows: full Task list %d KB heap, %d rows/window; "
+                        + "TaskSummary list %d KB heap, %d rows/window (%d summaries)",
+                fullHeap / 1024, fullRowsPerWindow, summaryHeap / 1024, summaryRowsPerWindow,
+                summaryList.size()));
+    }
+
+    @Test
+    public void lazyListHeap_at100kRows() {
+        List<Task> tasks = new ArrayList<>(100_000);
+        for (int i = 0; i < 100_000; i++) {
+            Task task = new Task("Task " + i, "Description " + i, "", "Low", "Pending", "", 1);
+            task.setCreatedAt(i);
+            tasks.add(task);
+        }
+        databaseHelper.addTasks(tasks);
+        tasks = null;
+
+        long before = usedHeap();
+        List<Task> eager = databaseHelper.getAllTasks(1);
+        long eagerHeap = usedHeap() - before;
+        eager = null;
+
+        before = usedHeap();
+        CursorTaskList lazy = databaseHelper.getAllTasksLazy(1);
+        // Scroll through every row, as onBindViewHolder would
+        for (int i = 0; i < lazy.size(); i++) {
+            lazy.get(i);
+        }
+        long lazyHeap = usedHeap() - before;
+        lazy.close();
+
+        System.out.println(String.format("100k tasks: ArrayList %d KB heap, CursorTaskList %d KB heap",
+                eagerHeap / 1024, lazyHeap / 1024));
+    }
+
+    // 70% insert, 20% status update, 10% delete of an earlier row
+    private long runPooled() {
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        int inserted = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+            int op = random.nextInt(10);
+            if (op < 7 || inserted == 0) {
+                databaseHelper.addTask(newTask(i));
+                inserted++;
+            } else if (op < 9) {
+                databaseHelper.updateTaskStatus(1 + random.nextInt(inserted), "Completed");
+            } else {
+                databaseHelper.deleteTask(1 + random.nextInt(inserted));
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    // Same sequence, reopening the database file for every single operation
+    private long runLegacy(File file) {
+        SQLiteDatabase setup = SQLiteDatabase.openOrCreateDatabase(file, null);
+        setup.execSQL("CREATE TABLE IF NOT EXISTS tasks(id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "title TEXT, description TEXT, due_date TEXT, priority TEXT, status TEXT,"
+                + "assigned_to TEXT, user_id INTEGER, created_at INTEGER)");
+        setup.close();
+
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        int inserted = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+            int op = random.nextInt(10);
+            SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(file, null);
+            if (op < 7 || inserted == 0) {
+                Task task = newTask(i);
+                ContentValues values = new ContentValues();
+                values.put("title", task.getTitle());
+                values.put("description", task.getDescription());
+                values.put("due_date", task.getDueDate());
+                values.put("priority", task.getPriority());
+                values.put("status", task.getStatus());
+                values.put("assigned_to", task.getAssignedTo());
+                values.put("user_id", task.getUserId());
+                values.put("created_at", task.getCreatedAt());
+                db.insert("tasks", null, values);
+                inserted++;
+            } else if (op < 9) {
+                ContentValues values = new ContentValues();
+                values.put("status", "Completed");
+                db.update("tasks", values, "id=?",
+                        new String[]{String.valueOf(1 + random.nextInt(inserted))});
+            } else {
+                db.delete("tasks", "id=?",
+                        new String[]{String.valueOf(1 + random.nextInt(inserted))});
+            }
+            db.close();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private int expectedRemaining() {
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(
+                new File(context.getCacheDir(), "legacy.db"), null);
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM tasks", null);
+        cursor.moveToFirst();
+        int count = cursor.getInt(0);
+        cursor.close();
+        db.close();
+        return count;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static double opsPerSecond(long nanos) {
+        return OPERATIONS * 1_000_000_000.0 / nanos;
+    }
+
+    private static Task newTask(int i) {
+        return new Task("Task " + i, "Description " + i, "1/1/2025", "High", "Pending", "", 1);
+    }
+}
@@ -0,0 +1,93 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class DatabaseHelperBulkTest {
+
+    private static final int ROWS = 5_000;
+
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        databaseHelper = DatabaseHelper.getInstance(RuntimeEnvironment.getApplication());
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+
+    @Test
+    public void addTasks_returnsRowIdPerTask_acrossChunks() {
+        long[] ids = databaseHelper.addTasks(newTasks(1_234, 1));
+
+        assertEquals(1_234, ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(i + 1, ids[i]);
+        }
+        assertEquals(1_234, databaseHelper.getAllTasks(1).size());
+    }
+
+    @Test
+    public void upsertTasks_updatesExistingAndInsertsNew() {
+        databaseHelper.addTasks(newTasks(2, 1));
+        List<Task> existing = databaseHelper.getAllTasks(1);
+        Task changed = existing.get(0);
+        changed.setStatus("Completed");
+        Task withUnknownId = newTasks(1, 1).get(0);
+        withUnknownId.setId(50);
+        Task brandNew = newTasks(1, 1).get(0);
+
+        long[] ids = databaseHelper.upsertTasks(Arrays.asList(changed, withUnknownId, brandNew));
+
+        assertEquals(changed.getId(), ids[0]);
+        assertEquals(50, ids[1]);
+        assertEquals(51, ids[2]);
+        assertEquals(1, databaseHelper.getTasksByStatus(1, "Completed").size());
+        assertEquals(4, databaseHelper.getAllTasks(1).size());
+    }
+
+    @Test
+    public void addTasks_rowsPerSecond_comparedToAddTaskLoop() {
+        List<Task> tasks = newTasks(ROWS, 1);
+
+        long start = System.nanoTime();
+        for (Task task : tasks) {
+            databaseHelper.addTask(task);
+        }
+        long loopNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        databaseHelper.addTasks(newTasks(ROWS, 2));
+        long bulkNanos = System.nanoTime() - start;
+
+        System.out.println(String.format("Insert %d rows: addTask loop %.0f rows/sec, addTasks %.0f rows/sec",
+                ROWS, ROWS * 1e9 / loopNanos, ROWS * 1e9 / bulkNanos));
+        assertEquals(ROWS, databaseHelper.getAllTasks(2).size());
+    }
+
+    private static List<Task> newTasks(int count, int userId) {
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(new Task("Task " + i, "Description " + i, "1/1/2025", "Medium", "Pending", "", userId));
+        }
+        return tasks;
+    }
+}
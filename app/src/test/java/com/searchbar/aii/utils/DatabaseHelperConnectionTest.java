@@ -0,0 +1,42 @@
+package com.searchbar.aii.utils;
+
+import android.content.Context;
+
+import com.searchbar.aii.models.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class DatabaseHelperConnectionTest {
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        databaseHelper = DatabaseHelper.getInstance(context);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+
+    @Test
+    public void sharedConnection_isReusedAcrossCalls() {
+        assertSame(databaseHelper, DatabaseHelper.getInstance(context));
+        assertTrue(databaseHelper.addTask(new Task("Task", "", "1/1/2025", "High", "Pending", "", 1)));
+        assertSame(databaseHelper.getWritableDatabase(), databaseHelper.getReadableDatabase());
+        assertTrue(databaseHelper.getWritableDatabase().isOpen());
+    }
+}
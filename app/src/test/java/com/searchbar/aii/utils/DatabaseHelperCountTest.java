@@ -0,0 +1,65 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class DatabaseHelperCountTest {
+
+    private static final long TODAY = DueDates.toEpochDay(2025, 6, 15);
+
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        databaseHelper = DatabaseHelper.getInstance(RuntimeEnvironment.getApplication());
+        add("High", "Pending", TODAY - 3);
+        add("High", "Completed", TODAY - 2);
+        add("Low", "Pending", TODAY);
+        add("Medium", "Pending", TODAY);
+        add("Low", "Completed", null);
+        add("Low", "Pending", TODAY + 5);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+
+    @Test
+    public void countsByStatusAndPriority() {
+        Map<String, Integer> byStatus = databaseHelper.countTasksByStatus(1);
+        Map<String, Integer> byPriority = databaseHelper.countTasksByPriority(1);
+
+        assertEquals(Integer.valueOf(4), byStatus.get("Pending"));
+        assertEquals(Integer.valueOf(2), byStatus.get("Completed"));
+        assertEquals(Integer.valueOf(2), byPriority.get("High"));
+        assertEquals(Integer.valueOf(1), byPriority.get("Medium"));
+        assertEquals(Integer.valueOf(3), byPriority.get("Low"));
+        assertTrue(databaseHelper.countTasksByStatus(2).isEmpty());
+    }
+
+    @Test
+    public void overdueAndDueToday() {
+        assertEquals(1, databaseHelper.countOverdueTasks(1, TODAY));
+        assertEquals(2, databaseHelper.countTasksDueOn(1, TODAY));
+    }
+
+    private void add(String priority, String status, Long dueDay) {
+        Task task = new Task("Task", "", "", priority, status, "", 1);
+        task.setDueDay(dueDay);
+        databaseHelper.addTask(task);
+    }
+}
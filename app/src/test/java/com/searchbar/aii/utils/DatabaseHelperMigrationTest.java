@@ -0,0 +1,117 @@
+package com.searchbar.aii.utils;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.searchbar.aii.models.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class DatabaseHelperMigrationTest {
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+    }
+
+    @After
+    public void tearDown() {
+        if (databaseHelper != null) {
+            databaseHelper.close();
+        }
+    }
+
+    @Test
+    public void upgradeFromV1_keepsExistingTasks() {
+        File file = context.getDatabasePath("TodoListDB");
+        file.getParentFile().mkdirs();
+        SQLiteDatabase v1 = SQLiteDatabase.openOrCreateDatabase(file, null);
+        v1.execSQL("CREATE TABLE users(id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "username TEXT, email TEXT UNIQUE, password TEXT)");
+        v1.execSQL("CREATE TABLE tasks(id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + "title TEXT, description TEXT, due_date TEXT, priority TEXT, status TEXT,"
+                + "assigned_to TEXT, user_id INTEGER, created_at INTEGER)");
+        v1.execSQL("INSERT INTO tasks(title, description, due_date, priority, status, assigned_to,"
+                + " user_id, created_at) VALUES ('Old task', 'kept', '1/1/2025', 'Low', 'Pending', '', 7, 100)");
+        v1.setVersion(1);
+        v1.close();
+
+        databaseHelper = DatabaseHelper.getInstance(context);
+        List<Task> tasks = databaseHelper.getAllTasks(7);
+
+        assertEquals(1, tasks.size());
+        assertEquals("Old task", tasks.get(0).getTitle());
+        assertEquals(Long.valueOf(DueDates.toEpochDay(2025, 1, 1)), tasks.get(0).getDueDay());
+        assertTrue(explain("SELECT * FROM tasks WHERE user_id=? ORDER BY created_at DESC", "7")
+                .contains("idx_tasks_user_created"));
+    }
+
+    @Test
+    public void getAllTasks_usesIndexWithoutTempSort() {
+        databaseHelper = DatabaseHelper.getInstance(context);
+
+        String plan = explain("SELECT * FROM tasks WHERE user_id=? ORDER BY created_at DESC", "1");
+
+        assertTrue(plan, plan.contains("USING INDEX idx_tasks_user_created"));
+        assertFalse(plan, plan.contains("TEMP B-TREE"));
+    }
+
+    @Test
+    public void getTasksByStatus_usesIndexWithoutTempSort() {
+        databaseHelper = DatabaseHelper.getInstance(context);
+
+        String plan = explain("SELECT * FROM tasks WHERE user_id=? AND status=? ORDER BY created_at DESC",
+                "1", "Pending");
+
+        assertTrue(plan, plan.contains("USING INDEX idx_tasks_user_status_created"));
+        assertFalse(plan, plan.contains("TEMP B-TREE"));
+    }
+
+    @Test
+    public void getTasksDueBetween_isIndexedRangeScan() {
+        databaseHelper = DatabaseHelper.getInstance(context);
+        for (int day = 1; day <= 10; day++) {
+            Task task = new Task("Day " + day, "", day + "/3/2025", "Low", "Pending", "", 1);
+            task.setDueDay(DueDates.toEpochDay(2025, 3, day));
+            databaseHelper.addTask(task);
+        }
+        databaseHelper.addTask(new Task("No date", "", "", "Low", "Pending", "", 1));
+
+        List<Task> due = databaseHelper.getTasksDueBetween(1,
+                DueDates.toEpochDay(2025, 3, 3), DueDates.toEpochDay(2025, 3, 5));
+        String plan = explain("SELECT * FROM tasks WHERE user_id=? AND due_day BETWEEN ? AND ?"
+                + " ORDER BY due_day, id", "1", "0", "1");
+
+        assertEquals(3, due.size());
+        assertEquals("Day 3", due.get(0).getTitle());
+        assertTrue(plan, plan.contains("USING INDEX idx_tasks_user_due_day"));
+        assertFalse(plan, plan.contains("TEMP B-TREE"));
+    }
+
+    private String explain(String sql, String... args) {
+        StringBuilder plan = new StringBuilder();
+        Cursor cursor = databaseHelper.getReadableDatabase().rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+        while (cursor.moveToNext()) {
+            plan.append(cursor.getString(cursor.getColumnIndexOrThrow("detail"))).append('\n');
+        }
+        cursor.close();
+        return plan.toString();
+    }
+}
@@ -0,0 +1,89 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class DatabaseHelperSearchTest {
+
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        databaseHelper = DatabaseHelper.getInstance(RuntimeEnvironment.getApplication());
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+
+    @Test
+    public void search_matchesWordPrefixes_titleHitsFirst() {
+        add("Buy milk", "from the groceries store", 1, 3);
+        add("Groceries", "weekly", 1, 1);
+        add("Groceries", "someone else's", 2, 2);
+        add("Call mom", "", 1, 4);
+
+        List<Task> results = databaseHelper.searchTasks(1, "groc");
+
+        assertEquals(2, results.size());
+        assertEquals("Groceries", results.get(0).getTitle());
+        assertEquals("Buy milk", results.get(1).getTitle());
+    }
+
+    @Test
+    public void search_followsUpdatesAndDeletes() {
+        add("Draft report", "", 1, 1);
+        int id = databaseHelper.getAllTasks(1).get(0).getId();
+
+        Task renamed = databaseHelper.getAllTasks(1).get(0);
+        renamed.setTitle("Final report");
+        databaseHelper.updateTask(renamed);
+        assertTrue(databaseHelper.searchTasks(1, "draft").isEmpty());
+        assertEquals(1, databaseHelper.searchTasks(1, "final").size());
+
+        databaseHelper.updateTaskStatus(id, "Completed");
+        assertEquals(1, databaseHelper.searchTasks(1, "final").size());
+
+        databaseHelper.deleteTask(id);
+        assertTrue(databaseHelper.searchTasks(1, "final").isEmpty());
+    }
+
+    @Test
+    public void search_treatsOperatorsAsPlainText() {
+        add("Fix \"quoted\" bug", "", 1, 1);
+
+        assertEquals(1, databaseHelper.searchTasks(1, "\"quoted*(").size());
+        assertEquals(1, databaseHelper.searchTasks(1, "  ").size());
+    }
+
+    @Test
+    public void search_foldsCaseAndAccentsBeyondAscii() {
+        add("Ärger mit der Bank", "", 1, 1);
+        add("Résumé", "ÉCOLE", 1, 2);
+
+        assertEquals(1, databaseHelper.searchTasks(1, "ärger").size());
+        assertEquals(1, databaseHelper.searchTasks(1, "arger").size());
+        assertEquals(1, databaseHelper.searchTasks(1, "resume").size());
+        assertEquals(1, databaseHelper.searchTasks(1, "école").size());
+    }
+
+    private void add(String title, String description, int userId, long createdAt) {
+        Task task = new Task(title, description, "1/1/2025", "Low", "Pending", "", userId);
+        task.setCreatedAt(createdAt);
+        databaseHelper.addTask(task);
+    }
+}
@@ -0,0 +1,79 @@
+package com.searchbar.aii.utils;
+
+import android.database.AbstractWindowedCursor;
+import android.database.Cursor;
+
+import com.searchbar.aii.models.Task;
+import com.searchbar.aii.models.TaskSummary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class DatabaseHelperSummaryTest {
+
+    private static final int ROWS = 5_000;
+
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        databaseHelper = DatabaseHelper.getInstance(RuntimeEnvironment.getApplication());
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+
+    @Test
+    public void summaries_truncateDescription_andFullTaskLoadsById() {
+        char[] longText = new char[1_000];
+        Arrays.fill(longText, 'x');
+        databaseHelper.addTask(new Task("Long", new String(longText), "1/1/2025", "High", "Pending", "", 1));
+
+        TaskSummary summary = databaseHelper.getTaskSummaries(1, null).get(0);
+        Task task = databaseHelper.getTask(summary.getId());
+
+        assertEquals("Long", summary.getTitle());
+        assertEquals(120, summary.getDescriptionPreview().length());
+        assertEquals(1_000, task.getDescription().length());
+        assertTrue(databaseHelper.getTaskSummaries(1, "Completed").isEmpty());
+    }
+
+    @Test
+    public void summaryCursor_fitsMoreRowsPerWindow() {
+        char[] text = new char[2_000];
+        Arrays.fill(text, 'd');
+        List<Task> tasks = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            tasks.add(new Task("Task " + i, new String(text), "1/1/2025", "Low", "Pending", "", 1));
+        }
+        databaseHelper.addTasks(tasks);
+
+        Cursor full = databaseHelper.getReadableDatabase().query("tasks", null, "user_id=?",
+                new String[]{"1"}, null, null, "created_at DESC, id DESC");
+        Cursor summary = databaseHelper.queryTaskSummaries(1, null);
+        full.moveToFirst();
+        summary.moveToFirst();
+        int fullRowsPerWindow = ((AbstractWindowedCursor) full).getWindow().getNumRows();
+        int summaryRowsPerWindow = ((AbstractWindowedCursor) summary).getWindow().getNumRows();
+        full.close();
+        summary.close();
+
+        assertEquals(ROWS, databaseHelper.getTaskSummaries(1, null).size());
+        assertTrue(summaryRowsPerWindow > fullRowsPerWindow);
+    }
+}
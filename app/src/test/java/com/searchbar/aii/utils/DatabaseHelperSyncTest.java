@@ -0,0 +1,74 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class DatabaseHelperSyncTest {
+
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        databaseHelper = DatabaseHelper.getInstance(RuntimeEnvironment.getApplication());
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+
+    @Test
+    public void emptyCache_hasNoWatermark() {
+        assertNull(databaseHelper.getSyncWatermark("uid"));
+        assertTrue(databaseHelper.getSyncedTasks("uid").isEmpty());
+    }
+
+    @Test
+    public void savedTasks_roundTrip_andWatermarkIsNewestUpdate() {
+        Task task = newTask("b", 200);
+        task.setDueDay(DueDates.toEpochDay(2025, 1, 1));
+        databaseHelper.saveSyncedTask("uid", newTask("a", 100));
+        databaseHelper.saveSyncedTask("uid", task);
+        databaseHelper.saveSyncedTask("other", newTask("c", 900));
+
+        List<Task> tasks = databaseHelper.getSyncedTasks("uid");
+
+        assertEquals(2, tasks.size());
+        assertEquals("a", tasks.get(0).getFirebaseId());
+        assertEquals("Task b", tasks.get(1).getTitle());
+        assertEquals(task.getDueDay(), tasks.get(1).getDueDay());
+        assertEquals(Long.valueOf(200), databaseHelper.getSyncWatermark("uid"));
+    }
+
+    @Test
+    public void tombstone_isHidden_butStillCountsForWatermark() {
+        databaseHelper.saveSyncedTask("uid", newTask("a", 100));
+        Task tombstone = newTask("a", 300);
+        tombstone.setDeleted(true);
+
+        databaseHelper.saveSyncedTask("uid", tombstone);
+
+        assertTrue(databaseHelper.getSyncedTasks("uid").isEmpty());
+        assertEquals(Long.valueOf(300), databaseHelper.getSyncWatermark("uid"));
+    }
+
+    private static Task newTask(String firebaseId, long updatedAt) {
+        Task task = new Task("Task " + firebaseId, "", "1/1/2025", "Low", "Pending", "", 0);
+        task.setFirebaseId(firebaseId);
+        task.setUpdatedAt(updatedAt);
+        return task;
+    }
+}
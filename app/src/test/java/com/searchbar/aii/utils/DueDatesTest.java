@@ -0,0 +1,51 @@
+package com.searchbar.aii.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DueDatesTest {
+
+    @Test
+    public void toEpochDay_matchesKnownDates() {
+        assertEquals(0, DueDates.toEpochDay(1970, 1, 1));
+        assertEquals(-1, DueDates.toEpochDay(1969, 12, 31));
+        assertEquals(11016, DueDates.toEpochDay(2000, 2, 29));
+        assertEquals(20089, DueDates.toEpochDay(2025, 1, 1));
+    }
+
+    @Test
+    public void parse_readsDatePickerFormat() {
+        assertEquals(Long.valueOf(20089), DueDates.parse("1/1/2025"));
+        assertEquals(Long.valueOf(20088), DueDates.parse("31/12/2024"));
+    }
+
+    @Test
+    public void parse_rejectsOtherText() {
+        assertNull(DueDates.parse(null));
+        assertNull(DueDates.parse(""));
+        assertNull(DueDates.parse("tomorrow"));
+        assertNull(DueDates.parse("1/13/2025"));
+    }
+
+    @Test
+    public void format_isInverseOfParse() {
+        assertEquals("1/1/2025", DueDates.format(20089));
+        assertEquals("29/2/2000", DueDates.format(11016));
+        assertEquals("31/12/1969", DueDates.format(-1));
+        for (long day = 18000; day < 22000; day++) {
+            assertEquals(Long.valueOf(day), DueDates.parse(DueDates.format(day)));
+        }
+    }
+
+    @Test
+    public void ranges_containToday() {
+        long today = DueDates.today();
+        long[] week = DueDates.thisWeek();
+        long[] month = DueDates.thisMonth();
+
+        assertEquals(6, week[1] - week[0]);
+        assertTrue(week[0] <= today && today <= week[1]);
+        assertTrue(month[0] <= today && today <= month[1]);
+    }
+}
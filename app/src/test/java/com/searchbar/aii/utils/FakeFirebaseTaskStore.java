@@ -0,0 +1,119 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.Task;
+
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Local stand-in for Firebase: writes return at once (keys are made on the client, as with
+// push()), and every change event reaches listeners one round trip later on a separate
+// callback thread, in order. The data itself is kept by an InMemoryTaskStore.
+class FakeFirebaseTaskStore implements TaskStore {
+    private final InMemoryTaskStore server = new InMemoryTaskStore();
+    private final ScheduledExecutorService network = Executors.newSingleThreadScheduledExecutor();
+    private final long latencyMillis;
+
+    FakeFirebaseTaskStore(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public String addTask(Task task) {
+        return server.addTask(task);
+    }
+
+    @Override
+    public boolean updateTaskStatus(String taskKey, String status) {
+        return server.updateTaskStatus(taskKey, status);
+    }
+
+    @Override
+    public boolean deleteTask(String taskKey) {
+        return server.deleteTask(taskKey);
+    }
+
+    @Override
+    public boolean updateTasksStatus(Collection<String> taskKeys, String status) {
+        return server.updateTasksStatus(taskKeys, status);
+    }
+
+    @Override
+    public boolean deleteTasks(Collection<String> taskKeys) {
+        return server.deleteTasks(taskKeys);
+    }
+
+    @Override
+    public boolean reassignTasks(Collection<String> taskKeys, String assignedTo) {
+        return server.reassignTasks(taskKeys, assignedTo);
+    }
+
+    @Override
+    public TaskRepository.Cancellable observeTasks(Long updatedSince, Collection<String> heldKeys,
+                                                   FirebaseHelper.OnTaskChangeListener listener) {
+        DelayedListener delayed = new DelayedListener(listener);
+        TaskRepository.Cancellable registration = server.observeTasks(updatedSince, heldKeys, delayed);
+        return () -> {
+            delayed.cancelled = true;
+            registration.cancel();
+        };
+    }
+
+    @Override
+    public void loadOlderTasks() {}
+
+    @Override
+    public void setOnWriteRejectedListener(OnWriteRejectedListener listener) {}
+
+    // Waits until every event sent so far has been delivered
+    void settle() throws Exception {
+        network.schedule(() -> {}, latencyMillis + 1, TimeUnit.MILLISECONDS).get(10, TimeUnit.SECONDS);
+    }
+
+    void shutdown() {
+        network.shutdownNow();
+    }
+
+    private class DelayedListener implements FirebaseHelper.OnTaskChangeListener {
+        private final FirebaseHelper.OnTaskChangeListener listener;
+        private volatile boolean cancelled;
+
+        DelayedListener(FirebaseHelper.OnTaskChangeListener listener) {
+            this.listener = listener;
+        }
+
+        private void deliver(Runnable event) {
+            network.schedule(() -> {
+                if (!cancelled) {
+                    event.run();
+                }
+            }, latencyMillis, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void onTaskAdded(Task task) {
+            deliver(() -> listener.onTaskAdded(task));
+        }
+
+        @Override
+        public void onTaskChanged(Task task) {
+            deliver(() -> listener.onTaskChanged(task));
+        }
+
+        @Override
+        public void onTaskRemoved(String firebaseId) {
+            deliver(() -> listener.onTaskRemoved(firebaseId));
+        }
+
+        @Override
+        public void onTaskMoved(String firebaseId, String previousFirebaseId) {
+            deliver(() -> listener.onTaskMoved(firebaseId, previousFirebaseId));
+        }
+
+        @Override
+        public void onError(String error) {
+            deliver(() -> listener.onError(error));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.searchbar.aii.utils;
+
+import org.junit.After;
+
+public class FakeFirebaseTaskStoreTest extends TaskStoreContractTest {
+
+    private FakeFirebaseTaskStore fakeFirebase;
+
+    @Override
+    protected TaskStore createStore() {
+        fakeFirebase = new FakeFirebaseTaskStore(20);
+        return fakeFirebase;
+    }
+
+    @Override
+    protected void settle() throws Exception {
+        fakeFirebase.settle();
+    }
+
+    @After
+    public void tearDown() {
+        fakeFirebase.shutdown();
+    }
+}
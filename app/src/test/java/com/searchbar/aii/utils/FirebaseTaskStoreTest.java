@@ -0,0 +1,171 @@
+package com.searchbar.aii.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.google.firebase.database.ServerValue;
+import com.searchbar.aii.models.Task;
+
+import org.junit.After;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+// The app's store, writes going through a real Outbox into a fake Firebase tree
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class FirebaseTaskStoreTest extends TaskStoreContractTest {
+
+    private DatabaseHelper databaseHelper;
+    private Outbox outbox;
+
+    @Override
+    protected TaskStore createStore() {
+        databaseHelper = DatabaseHelper.getInstance(RuntimeEnvironment.getApplication());
+        FakeTree tree = new FakeTree();
+        outbox = new Outbox(databaseHelper, tree);
+        return new FirebaseTaskStore(tree, outbox);
+    }
+
+    // Until the outbox has sent everything, then the change events it caused
+    @Override
+    protected void settle() throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (outbox.getPendingCount() > 0) {
+            assertTrue("Outbox did not drain", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+
+    // tasks/uid as Firebase would hold it: applies multi-path updates the way updateChildren
+    // does (a map replaces the node, anything else sets one child, creating the node if it
+    // is missing) and sends child events on the main thread
+    private static class FakeTree implements Outbox.Sink, FirebaseTaskStore.Source {
+        private static final String ROOT = "tasks/uid/";
+
+        private final Map<String, Map<String, Object>> nodes = new LinkedHashMap<>();
+        private final List<FirebaseHelper.OnTaskChangeListener> listeners = new ArrayList<>();
+        private final Handler mainHandler = new Handler(Looper.getMainLooper());
+        private long nextKey;
+        private long lastTimestamp;
+
+        @Override
+        public String getCurrentUserId() {
+            return "uid";
+        }
+
+        @Override
+        public synchronized String newTaskKey() {
+            return String.format(Locale.US, "-k%010d", nextKey++);
+        }
+
+        @Override
+        public synchronized void applyUpdates(Map<String, Object> updates,
+                                              FirebaseHelper.OnWriteCompleteListener listener) {
+            long timestamp = lastTimestamp = Math.max(System.currentTimeMillis(), lastTimestamp + 1);
+            Set<String> added = new LinkedHashSet<>();
+            Set<String> changed = new LinkedHashSet<>();
+            for (Map.Entry<String, Object> update : updates.entrySet()) {
+                assertTrue(update.getKey().startsWith(ROOT));
+                String path = update.getKey().substring(ROOT.length());
+                Object value = resolve(update.getValue(), timestamp);
+                String taskKey = value instanceof Map ? path : path.substring(0, path.lastIndexOf('/'));
+                Map<String, Object> node = nodes.get(taskKey);
+                if (node == null) {
+                    node = new HashMap<>();
+                    nodes.put(taskKey, node);
+                    added.add(taskKey);
+                } else if (!added.contains(taskKey)) {
+                    changed.add(taskKey);
+                }
+                if (value instanceof Map) {
+                    node.clear();
+                    node.putAll(asNode((Map<?, ?>) value));
+                } else {
+                    node.put(path.substring(taskKey.length() + 1), value);
+                }
+            }
+            List<FirebaseHelper.OnTaskChangeListener> targets = new ArrayList<>(listeners);
+            for (String taskKey : added) {
+                Task task = TaskCodec.fromMap(taskKey, nodes.get(taskKey));
+                mainHandler.post(() -> {
+                    for (FirebaseHelper.OnTaskChangeListener target : targets) {
+                        target.onTaskAdded(TaskCodec.copyOf(task));
+                    }
+                });
+            }
+            for (String taskKey : changed) {
+                Task task = TaskCodec.fromMap(taskKey, nodes.get(taskKey));
+                mainHandler.post(() -> {
+                    for (FirebaseHelper.OnTaskChangeListener target : targets) {
+                        target.onTaskChanged(TaskCodec.copyOf(task));
+                    }
+                });
+            }
+            listener.onSuccess();
+        }
+
+        @Override
+        public synchronized FirebaseTaskStore.Observation observeTasks(
+                Long updatedSince, Collection<String> heldBuckets, FirebaseHelper.OnTaskChangeListener listener) {
+            for (Map.Entry<String, Map<String, Object>> node : nodes.entrySet()) {
+                Task task = TaskCodec.fromMap(node.getKey(), node.getValue());
+                if (updatedSince == null || task.getUpdatedAt() != null && task.getUpdatedAt() >= updatedSince) {
+                    listener.onTaskAdded(task);
+                }
+            }
+            listeners.add(listener);
+            return new FirebaseTaskStore.Observation() {
+                @Override
+                public void loadOlder() {}
+
+                @Override
+                public void cancel() {
+                    synchronized (FakeTree.this) {
+                        listeners.remove(listener);
+                    }
+                }
+            };
+        }
+
+        // The outbox sends ServerValue.TIMESTAMP, which the server replaces with its time
+        private static Object resolve(Object value, long timestamp) {
+            if (!(value instanceof Map)) {
+                return value;
+            }
+            if (ServerValue.TIMESTAMP.equals(value)) {
+                return timestamp;
+            }
+            Map<String, Object> resolved = new HashMap<>();
+            for (Map.Entry<?, ?> child : ((Map<?, ?>) value).entrySet()) {
+                resolved.put((String) child.getKey(), resolve(child.getValue(), timestamp));
+            }
+            return resolved;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Map<String, Object> asNode(Map<?, ?> value) {
+            return (Map<String, Object>) value;
+        }
+    }
+}
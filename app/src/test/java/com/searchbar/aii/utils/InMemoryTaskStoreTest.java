@@ -0,0 +1,9 @@
+package com.searchbar.aii.utils;
+
+public class InMemoryTaskStoreTest extends TaskStoreContractTest {
+
+    @Override
+    protected TaskStore createStore() {
+        return new InMemoryTaskStore();
+    }
+}
@@ -0,0 +1,304 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.OutboxEntry;
+import com.searchbar.aii.models.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class OutboxTest {
+
+    private DatabaseHelper databaseHelper;
+    private FakeSink sink;
+    private Outbox outbox;
+
+    @Before
+    public void setUp() {
+        databaseHelper = DatabaseHelper.getInstance(RuntimeEnvironment.getApplication());
+        sink = new FakeSink();
+        outbox = new Outbox(databaseHelper, sink);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+
+    @Test
+    public void addTask_staysQueuedUntilAcknowledged() throws Exception {
+        String key = outbox.addTask(newTask());
+
+        Call call = sink.next();
+        @SuppressWarnings("unchecked")
+        Map<String, Object> value = (Map<String, Object>) call.updates.get("tasks/uid/" + key);
+        assertEquals("Write report", value.get("t"));
+        assertFalse(value.containsKey("firebaseId"));
+        assertEquals(".sv", ((Map<?, ?>) value.get("u")).keySet().iterator().next());
+        assertEquals(1, outbox.getPendingCount());
+
+        call.listener.onSuccess();
+        awaitPending(0);
+    }
+
+    @Test
+    public void writesForOneTask_areSentInOrder() throws Exception {
+        String key = outbox.addTask(newTask());
+        outbox.updateTaskStatus(key, "Completed");
+        outbox.deleteTask(key);
+
+        Call add = sink.next();
+        assertEquals(1, add.updates.size());
+        assertTrue(add.updates.get("tasks/uid/" + key) instanceof Map);
+        add.listener.onSuccess();
+
+        // Status, its bean-named copy and updatedAt were queued as one write and go out together
+        Call status = sink.next();
+        assertEquals(3, status.updates.size());
+        assertEquals(1, ((Number) status.updates.get("tasks/uid/" + key + "/s")).intValue());
+        assertTrue(status.updates.containsKey("tasks/uid/" + key + "/u"));
+        status.listener.onSuccess();
+
+        Call delete = sink.next();
+        Map<?, ?> tombstone = (Map<?, ?>) delete.updates.get("tasks/uid/" + key);
+        assertEquals(true, tombstone.get("x"));
+        delete.listener.onSuccess();
+        awaitPending(0);
+    }
+
+    @Test
+    public void differentTasks_shareOneUpdate() throws Exception {
+        String first = outbox.addTask(newTask());
+        Call call = sink.next();
+        // Queued straight into the table so both are waiting when the next flush runs
+        databaseHelper.enqueueOutbox(Collections.singletonList("second"), "tasks/uid", "{\"second\":\"a\"}");
+        databaseHelper.enqueueOutbox(Collections.singletonList("third"), "tasks/uid", "{\"third\":\"b\"}");
+        outbox.flush();
+
+        // The first write is still in flight, the other two go out together
+        Call next = sink.next();
+        assertEquals(1, call.updates.size());
+        assertEquals(2, next.updates.size());
+        assertTrue(next.updates.containsKey("tasks/uid/second"));
+        assertTrue(next.updates.containsKey("tasks/uid/third"));
+        assertFalse(next.updates.containsKey("tasks/uid/" + first));
+    }
+
+    @Test
+    public void failedWrite_isRetriedAfterBackoff() throws Exception {
+        assertTrue(outbox.updateTaskStatus("task1", "Completed"));
+
+        sink.next().listener.onFailure("Network error", false);
+        Call retry = sink.next(3);
+
+        // Retried whole: the status and its updatedAt stay together
+        assertEquals(3, retry.updates.size());
+        assertEquals(1, ((Number) retry.updates.get("tasks/uid/task1/s")).intValue());
+        assertTrue(retry.updates.containsKey("tasks/uid/task1/u"));
+        OutboxEntry entry = databaseHelper.getOutboxEntries(0, 1).get(0);
+        assertEquals(1, entry.getAttempts());
+    }
+
+    @Test
+    public void writeTouchingSeveralTasks_isOneRow_andHoldsBackTheirLaterWrites() throws Exception {
+        databaseHelper.enqueueOutbox(Arrays.asList("a", "b"), "tasks/uid", "{\"a/s\":1,\"b/s\":1}");
+        databaseHelper.enqueueOutbox(Collections.singletonList("b"), "tasks/uid", "{\"b/s\":0}");
+        outbox.flush();
+
+        Call bulk = sink.next();
+        assertEquals(2, outbox.getPendingCount());
+        assertEquals(2, bulk.updates.size());
+        assertNull(sink.calls.poll(100, TimeUnit.MILLISECONDS));
+
+        bulk.listener.onSuccess();
+        Call later = sink.next();
+        assertEquals(0, ((Number) later.updates.get("tasks/uid/b/s")).intValue());
+    }
+
+    @Test
+    public void bulkAction_isOneRow_andOneUpdate() throws Exception {
+        assertTrue(outbox.updateTasksStatus(Arrays.asList("a", "b", "c"), "Completed"));
+        assertEquals(1, outbox.getPendingCount());
+
+        Call call = sink.next();
+        assertEquals(1, ((Number) call.updates.get("tasks/uid/a/s")).intValue());
+        assertEquals(1, ((Number) call.updates.get("tasks/uid/c/s")).intValue());
+        call.listener.onSuccess();
+        awaitPending(0);
+    }
+
+    @Test
+    public void writeFailingTooOften_isDroppedAndReported() throws Exception {
+        List<String> rejected = new CopyOnWriteArrayList<>();
+        outbox.setOnWriteRejectedListener((taskKeys, error) -> rejected.addAll(taskKeys));
+        long id = databaseHelper.enqueueOutbox(Collections.singletonList("task1"), "tasks/uid", "{\"task1/s\":1}");
+        for (int i = 0; i < Outbox.MAX_ATTEMPTS - 1; i++) {
+            databaseHelper.rescheduleOutboxEntry(id, 0);
+        }
+        outbox.flush();
+
+        sink.next().listener.onFailure("Invalid data", false);
+
+        awaitPending(0);
+        assertNull(sink.calls.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(Collections.singletonList("task1"), rejected);
+    }
+
+    @Test
+    public void refusedWrite_isDroppedAndReported() throws Exception {
+        List<String> rejected = new CopyOnWriteArrayList<>();
+        outbox.setOnWriteRejectedListener((taskKeys, error) -> rejected.addAll(taskKeys));
+        assertTrue(outbox.updateTaskStatus("task1", "Completed"));
+
+        sink.next().listener.onFailure("Permission denied", true);
+
+        awaitPending(0);
+        assertNull(sink.calls.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(Collections.singletonList("task1"), rejected);
+    }
+
+    @Test
+    public void refusedBatch_isResentRowByRow_andOnlyTheRefusedWriteDropped() throws Exception {
+        List<String> rejected = new CopyOnWriteArrayList<>();
+        outbox.setOnWriteRejectedListener((taskKeys, error) -> rejected.addAll(taskKeys));
+        databaseHelper.enqueueOutbox(Collections.singletonList("good"), "tasks/uid", "{\"good/s\":1}");
+        databaseHelper.enqueueOutbox(Collections.singletonList("bad"), "tasks/uid", "{\"bad/s\":1}");
+        outbox.flush();
+
+        Call together = sink.next();
+        assertEquals(2, together.updates.size());
+        together.listener.onFailure("Permission denied", true);
+
+        Call first = sink.next();
+        assertEquals(Collections.singleton("tasks/uid/good/s"), first.updates.keySet());
+        assertNull(sink.calls.poll(100, TimeUnit.MILLISECONDS));
+        first.listener.onSuccess();
+
+        Call second = sink.next();
+        assertEquals(Collections.singleton("tasks/uid/bad/s"), second.updates.keySet());
+        second.listener.onFailure("Permission denied", true);
+
+        awaitPending(0);
+        assertEquals(Collections.singletonList("bad"), rejected);
+    }
+
+    @Test
+    public void writesForAnotherUser_goInTheirOwnBatch() throws Exception {
+        // Left over from the user who logged out
+        databaseHelper.enqueueOutbox(Collections.singletonList("old"), "tasks/olduid", "{\"old/s\":1}");
+        databaseHelper.enqueueOutbox(Collections.singletonList("new"), "tasks/uid", "{\"new/s\":1}");
+        outbox.flush();
+
+        Call old = sink.next();
+        assertEquals(Collections.singleton("tasks/olduid/old/s"), old.updates.keySet());
+        old.listener.onFailure("Permission denied", true);
+
+        Call current = sink.next();
+        assertEquals(Collections.singleton("tasks/uid/new/s"), current.updates.keySet());
+    }
+
+    @Test
+    public void readyWrite_isSent_behindAFullPageOfBackedOffOnes() throws Exception {
+        // One task's first write is backing off, which holds back every later one of its writes
+        long first = databaseHelper.enqueueOutbox(Collections.singletonList("task1"), "tasks/uid", "{\"task1/s\":1}");
+        databaseHelper.rescheduleOutboxEntry(first, System.currentTimeMillis() + 60_000);
+        for (int i = 1; i < Outbox.FLUSH_LIMIT; i++) {
+            databaseHelper.enqueueOutbox(Collections.singletonList("task1"), "tasks/uid", "{\"task1/s\":0}");
+        }
+        databaseHelper.enqueueOutbox(Collections.singletonList("task2"), "tasks/uid", "{\"task2/s\":1}");
+        outbox.flush();
+
+        Call call = sink.next();
+        assertEquals(Collections.singleton("tasks/uid/task2/s"), call.updates.keySet());
+    }
+
+    @Test
+    public void queuedWrites_surviveRestart() throws Exception {
+        outbox.deleteTask("task1");
+        sink.next();
+
+        // A new outbox over the same database picks up the unacknowledged write
+        FakeSink afterRestart = new FakeSink();
+        new Outbox(databaseHelper, afterRestart).flush();
+
+        Call call = afterRestart.next();
+        assertTrue(call.updates.containsKey("tasks/uid/task1"));
+    }
+
+    @Test
+    public void backoff_growsAndIsCapped() {
+        assertTrue(outbox.backoffMillis(0) <= 1_000);
+        assertTrue(outbox.backoffMillis(3) >= 4_000);
+        assertTrue(outbox.backoffMillis(30) <= 10 * 60 * 1_000);
+    }
+
+    private void awaitPending(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1_000;
+        while (outbox.getPendingCount() != count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, outbox.getPendingCount());
+    }
+
+    private static Task newTask() {
+        return new Task("Write report", "", "1/1/2025", "High", "Pending", "", 1);
+    }
+
+    private static class Call {
+        final Map<String, Object> updates;
+        final FirebaseHelper.OnWriteCompleteListener listener;
+
+        Call(Map<String, Object> updates, FirebaseHelper.OnWriteCompleteListener listener) {
+            this.updates = updates;
+            this.listener = listener;
+        }
+    }
+
+    // Records each update; the test decides when the server acknowledges it
+    private static class FakeSink implements Outbox.Sink {
+        final BlockingQueue<Call> calls = new LinkedBlockingQueue<>();
+        int keys;
+
+        @Override
+        public String getCurrentUserId() {
+            return "uid";
+        }
+
+        @Override
+        public synchronized String newTaskKey() {
+            return "key" + keys++;
+        }
+
+        @Override
+        public void applyUpdates(Map<String, Object> updates, FirebaseHelper.OnWriteCompleteListener listener) {
+            calls.add(new Call(updates, listener));
+        }
+
+        Call next() throws InterruptedException {
+            return next(1);
+        }
+
+        Call next(int timeoutSeconds) throws InterruptedException {
+            Call call = calls.poll(timeoutSeconds, TimeUnit.SECONDS);
+            assertNotNull("No update sent", call);
+            return call;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.Task;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SearchSchedulerTest {
+
+    private static final int TASKS = 100_000;
+
+    // Stands in for the main thread: deliveries wait here until the test runs them
+    private BlockingQueue<Runnable> mainThread;
+    private SearchScheduler scheduler;
+    private List<String> delivered;
+
+    @Before
+    public void setUp() {
+        mainThread = new LinkedBlockingQueue<>();
+        scheduler = new SearchScheduler(50, mainThread::add);
+        delivered = new ArrayList<>();
+        scheduler.put(newTask("a", "Pay rent"));
+        scheduler.put(newTask("b", "Book dentist"));
+    }
+
+    @Test
+    public void typing_searchesOnlyTheLastQuery() throws Exception {
+        scheduler.search("d", this::record);
+        scheduler.search("de", this::record);
+        scheduler.search("den", this::record);
+
+        runNextDelivery();
+
+        assertEquals(1, delivered.size());
+        assertEquals("den:1", delivered.get(0));
+        assertEquals(2, scheduler.getSkippedCount());
+        assertEquals(1, scheduler.getCompletedCount());
+    }
+
+    @Test
+    public void resultsOfSupersededSearch_areNotDelivered() throws Exception {
+        scheduler.search("rent", this::record);
+        Runnable stale = mainThread.poll(5, TimeUnit.SECONDS);
+        scheduler.search("book", this::record);
+
+        stale.run();
+        runNextDelivery();
+
+        assertEquals(1, delivered.size());
+        assertEquals("book:1", delivered.get(0));
+        assertEquals(1, scheduler.getCancelledCount());
+    }
+
+    @Test
+    public void cancel_dropsPendingSearch() throws Exception {
+        scheduler.search("rent", this::record);
+        scheduler.cancel();
+
+        Thread.sleep(150);
+
+        assertTrue(mainThread.isEmpty());
+        assertEquals(1, scheduler.getSkippedCount());
+    }
+
+    @Test
+    public void runningSearch_stopsWhenSuperseded() throws Exception {
+        TaskSearchIndex index = new TaskSearchIndex();
+        for (int i = 0; i < TASKS; i++) {
+            index.put(newTask("k" + i, "Task " + i));
+        }
+        CountDownLatch checked = new CountDownLatch(1);
+
+        List<Task> results = index.search("a", () -> {
+            checked.countDown();
+            return true;
+        });
+
+        assertNull(results);
+        assertEquals(0, checked.getCount());
+        // An interrupted search leaves nothing behind for the next one to build on
+        assertEquals(TASKS, index.search("a").size());
+    }
+
+    private void record(String query, List<Task> results) {
+        delivered.add(query + ":" + results.size());
+    }
+
+    private void runNextDelivery() throws InterruptedException {
+        Runnable delivery = mainThread.poll(5, TimeUnit.SECONDS);
+        assertNotNull(delivery);
+        delivery.run();
+    }
+
+    private static Task newTask(String firebaseId, String title) {
+        Task task = new Task(title, "", "", "Low", "Pending", "", 0);
+        task.setFirebaseId(firebaseId);
+        return task;
+    }
+}
@@ -0,0 +1,25 @@
+package com.searchbar.aii.utils;
+
+import org.junit.After;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class SqliteTaskStoreTest extends TaskStoreContractTest {
+
+    private DatabaseHelper databaseHelper;
+
+    @Override
+    protected TaskStore createStore() {
+        databaseHelper = DatabaseHelper.getInstance(RuntimeEnvironment.getApplication());
+        return new SqliteTaskStore(databaseHelper, 1);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+    }
+}
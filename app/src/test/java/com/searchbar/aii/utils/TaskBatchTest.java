@@ -0,0 +1,131 @@
+package com.searchbar.aii.utils;
+
+import com.google.firebase.database.ServerValue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TaskBatchTest {
+
+    private static final int BATCH = 1_000;
+
+    private FakeBackend backend;
+
+    @Before
+    public void setUp() {
+        backend = new FakeBackend(1);
+        for (int i = 0; i < BATCH; i++) {
+            Map<String, Object> task = new HashMap<>();
+            task.put("v", 2);
+            task.put("t", "Task " + i);
+            task.put("s", 0);
+            backend.tasks.put("task" + i, task);
+        }
+    }
+
+    @Test
+    public void builders_writeOnePathPerTask() {
+        List<String> ids = Arrays.asList("a", "b");
+
+        Map<String, Object> statusUpdates = TaskBatch.statusUpdates(ids, "Completed");
+        assertEquals(1, statusUpdates.get("a/s"));
+        assertEquals("Completed", statusUpdates.get("a/status"));
+        assertEquals(ServerValue.TIMESTAMP, statusUpdates.get("a/u"));
+        assertEquals("sam", TaskBatch.reassignments(ids, "sam").get("b/a"));
+        Map<String, Object> deletions = TaskBatch.deletions(ids);
+        assertEquals(2, deletions.size());
+        assertEquals(true, ((Map<?, ?>) deletions.get("a")).get("x"));
+    }
+
+    @Test
+    public void bulkWrites_areExactlyTheirPaths() {
+        List<String> ids = Arrays.asList("2025-01/a", "b");
+
+        Map<String, Object> status = new HashMap<>();
+        Map<String, Object> tombstone = new HashMap<>();
+        tombstone.put("v", TaskCodec.VERSION);
+        tombstone.put("x", true);
+        tombstone.put("u", ServerValue.TIMESTAMP);
+        Map<String, Object> deletions = new HashMap<>();
+        for (String id : ids) {
+            status.put(id + "/s", 1);
+            if (TaskCodec.LEGACY_INSTALLS_SUPPORTED) {
+                status.put(id + "/status", "Completed");
+            }
+            status.put(id + "/u", ServerValue.TIMESTAMP);
+            deletions.put(id, tombstone);
+        }
+
+        // Nothing outside the listed tasks, and no path under another one in the same update
+        assertEquals(status, TaskBatch.statusUpdates(ids, "Completed"));
+        assertEquals(deletions, TaskBatch.deletions(ids));
+    }
+
+    @Test
+    public void oneMultiPathUpdate_comparedToWritePerTask() {
+        List<String> ids = new ArrayList<>(backend.tasks.keySet());
+
+        long start = System.nanoTime();
+        for (String id : ids) {
+            backend.updateChildren(TaskBatch.statusUpdates(Arrays.asList(id), "Completed"));
+        }
+        long singleNanos = System.nanoTime() - start;
+        int singleRoundTrips = backend.roundTrips;
+
+        backend.roundTrips = 0;
+        start = System.nanoTime();
+        boolean ok = backend.updateChildren(TaskBatch.statusUpdates(ids, "Pending"));
+        long batchNanos = System.nanoTime() - start;
+
+        System.out.println(String.format("%d status changes: per-task writes %d round trips %.0f tasks/sec, "
+                        + "multi-path update %d round trip %.0f tasks/sec",
+                BATCH, singleRoundTrips, BATCH * 1e9 / singleNanos, backend.roundTrips, BATCH * 1e9 / batchNanos));
+        // Timings are printed only; the round trips are what the batch saves
+        assertTrue(ok);
+        assertEquals(BATCH, singleRoundTrips);
+        assertEquals(1, backend.roundTrips);
+        for (Map<String, Object> task : backend.tasks.values()) {
+            assertEquals(0, task.get("s"));
+        }
+    }
+
+    // Stands in for tasks/<uid>: every call costs a round trip
+    private static class FakeBackend {
+        final Map<String, Map<String, Object>> tasks = new HashMap<>();
+        final long latencyMillis;
+        int roundTrips;
+
+        FakeBackend(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        boolean updateChildren(Map<String, Object> updates) {
+            roundTrips++;
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            for (Map.Entry<String, Object> update : updates.entrySet()) {
+                String[] parts = update.getKey().split("/");
+                if (parts.length == 1) {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> task = (Map<String, Object>) update.getValue();
+                    tasks.put(parts[0], new HashMap<>(task));
+                } else {
+                    tasks.get(parts[0]).put(parts[1], update.getValue());
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.Task;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TaskBucketsTest {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final long NOW = DueDates.toEpochDay(2025, 10, 17) * DAY;
+
+    @Test
+    public void bucketOf_isCreationMonthInUtc() {
+        assertEquals("197001", TaskBuckets.bucketOf(0));
+        assertEquals("202510", TaskBuckets.bucketOf(NOW));
+        assertEquals("202512", TaskBuckets.bucketOf(DueDates.toEpochDay(2026, 1, 1) * DAY - 1));
+        assertEquals("202510/-Nq1", TaskBuckets.keyFor(NOW, "-Nq1"));
+    }
+
+    @Test
+    public void bucketOfKey_isNullForPreBucketKeys() {
+        assertEquals("202510", TaskBuckets.bucketOfKey("202510/-Nq1"));
+        assertNull(TaskBuckets.bucketOfKey("-Nq1"));
+    }
+
+    @Test
+    public void recent_walksBackAcrossYears() {
+        assertEquals("202412", TaskBuckets.previous("202501"));
+        assertEquals(Arrays.asList("202501", "202412", "202411"),
+                TaskBuckets.recent(DueDates.toEpochDay(2025, 1, 20) * DAY));
+    }
+
+    @Test
+    public void initialSync_staysBoundedAsHistoryGrows() {
+        int previousHot = -1;
+        for (int years : new int[]{1, 3, 10}) {
+            Map<String, Map<String, Object>> tree = history(years, 50);
+            int allBytes = jsonBytes(tree);
+            int hotBytes = 0;
+            for (String bucket : TaskBuckets.recent(NOW)) {
+                hotBytes += jsonBytes(tree.get(bucket));
+            }
+
+            System.out.println(String.format("%d years of history: whole tree %d KB, hot buckets %d KB",
+                    years, allBytes / 1024, hotBytes / 1024));
+            if (previousHot != -1) {
+                assertEquals(previousHot, hotBytes);
+            }
+            previousHot = hotBytes;
+        }
+    }
+
+    // tasks/<uid> after `years` of perMonth tasks a month, ending this month
+    private static Map<String, Map<String, Object>> history(int years, int perMonth) {
+        Map<String, Map<String, Object>> tree = new HashMap<>();
+        String bucket = TaskBuckets.bucketOf(NOW);
+        for (int month = 0; month < years * 12; month++) {
+            Map<String, Object> tasks = new HashMap<>();
+            for (int i = 0; i < perMonth; i++) {
+                Task task = new Task("Task " + i, "", "", "Medium", "Completed", "", 0);
+                task.setCreatedAt(NOW);
+                task.setUpdatedAt(NOW);
+                tasks.put(String.format("-Nq%05d", i), TaskCodec.toMap(task));
+            }
+            tree.put(bucket, tasks);
+            bucket = TaskBuckets.previous(bucket);
+        }
+        return tree;
+    }
+
+    private static int jsonBytes(Map<String, ?> value) {
+        return TaskCodec.toJson(value).getBytes(StandardCharsets.UTF_8).length;
+    }
+}
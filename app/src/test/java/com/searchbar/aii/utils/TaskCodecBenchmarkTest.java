@@ -0,0 +1,62 @@
+package com.searchbar.aii.utils;
+
+import com.google.firebase.database.core.utilities.encoding.CustomClassMapper;
+import com.searchbar.aii.models.Task;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+
+/**
+ * Decode rate and allocation of {@link TaskCodec#fromMap} against the SDK's bean mapper.
+ * Prints its figures and asserts nothing, so it never fails a build; it is ignored by
+ * default because it takes a few seconds and leans on SDK internals (CustomClassMapper)
+ * and the HotSpot-only com.sun.management.ThreadMXBean. Remove the @Ignore to run it.
+ */
+@Ignore("Benchmark, run by hand")
+public class TaskCodecBenchmarkTest {
+
+    private static final int ITERATIONS = 100_000;
+
+    @Test
+    public void deserializationRateAndAllocation_comparedToBeanMapper() {
+        Map<String, Object> snapshot = TaskCodecTest.legacyValue(TaskCodecTest.sampleTasks().get(0));
+        for (int i = 0; i < 10_000; i++) {
+            CustomClassMapper.convertToCustomClass(snapshot, Task.class);
+            TaskCodec.fromMap("k1", snapshot);
+        }
+
+        long beanBytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            CustomClassMapper.convertToCustomClass(snapshot, Task.class);
+        }
+        long beanNanos = System.nanoTime() - start;
+        beanBytes = allocatedBytes() - beanBytes;
+
+        long codecBytes = allocatedBytes();
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            TaskCodec.fromMap("k1", snapshot);
+        }
+        long codecNanos = System.nanoTime() - start;
+        codecBytes = allocatedBytes() - codecBytes;
+
+        System.out.println(String.format("Task deserialization: bean mapper %.0f/sec %d bytes/task, "
+                        + "TaskCodec %.0f/sec %d bytes/task",
+                ITERATIONS * 1e9 / beanNanos, beanBytes / ITERATIONS,
+                ITERATIONS * 1e9 / codecNanos, codecBytes / ITERATIONS));
+    }
+
+    // 0 on JVMs without per-thread allocation counters, so only the rates are meaningful there
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return 0;
+        }
+        return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
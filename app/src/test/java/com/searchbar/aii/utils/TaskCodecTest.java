@@ -0,0 +1,245 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.Task;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TaskCodecTest {
+
+    private static final int SYNC_TASKS = 1_000;
+
+    @Test
+    public void legacyNodes_decodeAsBeanMapperDid() {
+        for (Task task : sampleTasks()) {
+            Map<String, Object> snapshot = legacyValue(task);
+
+            // The bean mapper gave back every property as it was written
+            assertFalse(TaskCodec.isCompact(snapshot));
+            assertTaskEquals(task, TaskCodec.fromMap(task.getFirebaseId(), snapshot));
+        }
+    }
+
+    @Test
+    public void roundTrip_keepsEveryFirebaseField() {
+        for (Task task : sampleTasks()) {
+            // id and userId belong to the local SQLite table and aren't synced
+            task.setId(0);
+            task.setUserId(0);
+            // and the compact schema leaves empty strings out, so null comes back empty
+            if (task.getDescription() == null) {
+                task.setDescription("");
+            }
+            if (task.getDueDate() == null) {
+                task.setDueDate("");
+            }
+            if (task.getAssignedTo() == null) {
+                task.setAssignedTo("");
+            }
+            assertTaskEquals(task, TaskCodec.fromMap(task.getFirebaseId(), TaskCodec.toMap(task)));
+            assertTaskEquals(task, TaskCodec.fromMap(task.getFirebaseId(),
+                    (Map<?, ?>) TaskCodec.fromJson(TaskCodec.toJson(TaskCodec.toMap(task)))));
+        }
+    }
+
+    @Test
+    public void toMap_usesShortKeysAndCodes() {
+        Map<String, Object> value = TaskCodec.toMap(sampleTasks().get(0));
+
+        assertTrue(TaskCodec.isCompact(value));
+        assertEquals(0, value.get("p"));
+        assertEquals(0, value.get("s"));
+        assertFalse(value.containsKey("firebaseId"));
+        // The date string is derived from dueDay
+        assertFalse(value.containsKey("dd"));
+
+        Task custom = sampleTasks().get(0);
+        custom.setDueDate("05/03/2025");
+        custom.setPriority("Urgent");
+        Task decoded = TaskCodec.fromMap("k1", TaskCodec.toMap(custom));
+        assertEquals("05/03/2025", decoded.getDueDate());
+        assertEquals("Urgent", decoded.getPriority());
+    }
+
+    @Test
+    public void toMap_keepsBeanFieldsForOldInstalls() {
+        for (Task task : sampleTasks()) {
+            if (task.isDeleted()) {
+                continue;
+            }
+            // What getValue(Task.class) on an old install maps into its Task
+            Map<String, Object> value = asSnapshotValue(TaskCodec.toMap(task));
+
+            assertEquals(task.getTitle(), value.get("title"));
+            assertEquals(task.getDescription(), value.get("description"));
+            assertEquals(task.getDueDate(), value.get("dueDate"));
+            assertEquals(task.getPriority(), value.get("priority"));
+            assertEquals(task.getStatus(), value.get("status"));
+            assertEquals(task.getAssignedTo(), value.get("assignedTo"));
+            assertEquals(task.getCreatedAt(), ((Number) value.get("createdAt")).longValue());
+        }
+    }
+
+    @Test
+    public void fieldWrite_onLegacyNode_wins() {
+        Map<String, Object> snapshot = legacyValue(sampleTasks().get(0));
+        // As this version writes a status toggle: both names, and the server time
+        for (Map.Entry<String, Object> update : TaskBatch.statusUpdates(Arrays.asList("k1"), "Completed").entrySet()) {
+            snapshot.put(update.getKey().substring("k1/".length()), update.getValue());
+        }
+        snapshot.put("u", 1_700_000_000_500L);
+
+        Task task = TaskCodec.fromMap("k1", snapshot);
+
+        assertEquals("Completed", task.getStatus());
+        assertEquals(Long.valueOf(1_700_000_000_500L), task.getUpdatedAt());
+        assertEquals("Buy milk", task.getTitle());
+    }
+
+    @Test
+    public void oldInstallFieldWrite_onCompactNode_wins() {
+        Map<String, Object> snapshot = asSnapshotValue(TaskCodec.toMap(sampleTasks().get(0)));
+        // An old install toggles status through the bean name only
+        snapshot.put("status", "Completed");
+
+        assertEquals("Completed", TaskCodec.fromMap("k1", snapshot).getStatus());
+    }
+
+    @Test
+    public void unknownAndMistypedFields_areSkipped() {
+        Map<String, Object> snapshot = asSnapshotValue(TaskCodec.toMap(sampleTasks().get(0)));
+        snapshot.put("addedByNewerClient", "x");
+        snapshot.put("p", 7L);
+        snapshot.put("priority", 7L);
+        snapshot.put("t", 3L);
+        snapshot.put("title", 3L);
+
+        Task task = TaskCodec.fromMap("k1", snapshot);
+
+        assertNull(task.getTitle());
+        assertNull(task.getPriority());
+        assertEquals("2 litres", task.getDescription());
+    }
+
+    @Test
+    public void payloadSize_legacyComparedToCompact() {
+        Task task = sampleTasks().get(0);
+        int legacyBytes = jsonBytes(legacyValue(task));
+        // What this build writes, and the compact node it writes once the legacy gate is off
+        int writtenBytes = jsonBytes(asSnapshotValue(TaskCodec.toMap(task)));
+        int compactBytes = jsonBytes(asSnapshotValue(TaskCodec.toMap(task, false)));
+
+        // A full sync downloads the tasks/<uid> object: every task under its key
+        Map<String, Object> legacyTree = new HashMap<>();
+        Map<String, Object> writtenTree = new HashMap<>();
+        Map<String, Object> compactTree = new HashMap<>();
+        for (int i = 0; i < SYNC_TASKS; i++) {
+            Task synced = TaskCodec.copyOf(task);
+            synced.setFirebaseId(String.format("-Nq%017d", i));
+            synced.setTitle("Task " + i);
+            synced.setStatus(i % 3 == 0 ? "Completed" : "Pending");
+            legacyTree.put(synced.getFirebaseId(), legacyValue(synced));
+            writtenTree.put(synced.getFirebaseId(), asSnapshotValue(TaskCodec.toMap(synced)));
+            compactTree.put(synced.getFirebaseId(), asSnapshotValue(TaskCodec.toMap(synced, false)));
+        }
+        int legacySync = jsonBytes(legacyTree);
+        int writtenSync = jsonBytes(writtenTree);
+        int compactSync = jsonBytes(compactTree);
+
+        System.out.println(String.format("Task payload: legacy %d bytes, written now %d bytes "
+                        + "(legacy installs supported: %b), compact only %d bytes; full sync of %d tasks: "
+                        + "legacy %d KB, written now %d KB (%+.0f%%), compact only %d KB (%+.0f%%)",
+                legacyBytes, writtenBytes, TaskCodec.LEGACY_INSTALLS_SUPPORTED, compactBytes, SYNC_TASKS,
+                legacySync / 1024, writtenSync / 1024, 100.0 * (writtenSync - legacySync) / legacySync,
+                compactSync / 1024, 100.0 * (compactSync - legacySync) / legacySync));
+        // The saving only comes once the gate is off; until then nothing is dropped
+        assertTrue(compactBytes * 2 < legacyBytes);
+        assertTrue(compactSync * 10 < legacySync * 7);
+        if (TaskCodec.LEGACY_INSTALLS_SUPPORTED) {
+            assertTrue(writtenBytes > compactBytes);
+        } else {
+            assertEquals(compactSync, writtenSync);
+        }
+    }
+
+    static List<Task> sampleTasks() {
+        Task full = new Task("Buy milk", "2 litres", "5/3/2025", "High", "Pending", "sam", 4);
+        full.setId(12);
+        full.setFirebaseId("k1");
+        full.setDueDay(DueDates.toEpochDay(2025, 3, 5));
+        full.setUpdatedAt(1_700_000_000_000L);
+
+        // As AddTaskActivity saves a task with only a title
+        Task sparse = new Task("No dates", "", "", "Medium", "Pending", "", 0);
+        sparse.setFirebaseId("k2");
+
+        Task tombstone = new Task();
+        tombstone.setFirebaseId("k3");
+        tombstone.setDeleted(true);
+        tombstone.setUpdatedAt(1_700_000_000_001L);
+
+        return new ArrayList<>(Arrays.asList(full, sparse, tombstone));
+    }
+
+    // A node as written before the compact schema, by the SDK's bean mapper
+    static Map<String, Object> legacyValue(Task task) {
+        Map<String, Object> value = new HashMap<>();
+        value.put("id", task.getId());
+        value.put("firebaseId", task.getFirebaseId());
+        value.put("title", task.getTitle());
+        value.put("description", task.getDescription());
+        value.put("dueDate", task.getDueDate());
+        value.put("dueDay", task.getDueDay());
+        value.put("priority", task.getPriority());
+        value.put("status", task.getStatus());
+        value.put("assignedTo", task.getAssignedTo());
+        value.put("userId", task.getUserId());
+        value.put("createdAt", task.getCreatedAt());
+        value.put("updatedAt", task.getUpdatedAt());
+        value.put("deleted", task.isDeleted());
+        return asSnapshotValue(value);
+    }
+
+    // What DataSnapshot.getValue() hands back: whole numbers always arrive as Long
+    private static Map<String, Object> asSnapshotValue(Map<String, Object> map) {
+        Map<String, Object> value = new HashMap<>();
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            Object field = entry.getValue();
+            if (field instanceof Integer) {
+                field = ((Integer) field).longValue();
+            }
+            if (field != null) {
+                value.put(entry.getKey(), field);
+            }
+        }
+        return value;
+    }
+
+    private static int jsonBytes(Map<String, Object> value) {
+        return TaskCodec.toJson(value).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void assertTaskEquals(Task expected, Task actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getFirebaseId(), actual.getFirebaseId());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getDueDate(), actual.getDueDate());
+        assertEquals(expected.getDueDay(), actual.getDueDay());
+        assertEquals(expected.getPriority(), actual.getPriority());
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getAssignedTo(), actual.getAssignedTo());
+        assertEquals(expected.getUserId(), actual.getUserId());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getUpdatedAt(), actual.getUpdatedAt());
+        assertEquals(expected.isDeleted(), actual.isDeleted());
+    }
+}
@@ -0,0 +1,142 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.Task;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TaskIndexTest {
+
+    private static final int TASKS = 100_000;
+    private static final int SWITCHES = 1_000;
+    private static final String[] STATUSES = {"Pending", "Completed"};
+    private static final String[] PRIORITIES = {"High", "Medium", "Low"};
+
+    private TaskIndex index;
+
+    @Before
+    public void setUp() {
+        index = new TaskIndex();
+    }
+
+    @Test
+    public void changes_moveTasksBetweenBuckets() {
+        index.put(newTask("a", "Pending", "High"));
+        index.put(newTask("b", "Pending", "Low"));
+        index.put(newTask("c", "Completed", "High"));
+
+        assertEquals(2, index.countByStatus("Pending"));
+        assertEquals(Arrays.asList("a", "c"), keysOf(index.view(null, "High")));
+        assertEquals(Arrays.asList("a"), keysOf(index.view("Pending", "High")));
+
+        index.put(newTask("a", "Completed", "High"));
+        index.remove("c");
+
+        assertEquals(1, index.countByStatus("Pending"));
+        assertEquals(Arrays.asList("a"), keysOf(index.view("Completed", null)));
+        assertEquals(Arrays.asList("a"), keysOf(index.view("Completed", "High")));
+        assertTrue(index.view("Pending", "High").isEmpty());
+        assertEquals(Arrays.asList("a", "b"), keysOf(index.view(null, null)));
+    }
+
+    @Test
+    public void unchangedBucket_returnsSameList() {
+        index.put(newTask("a", "Pending", "High"));
+        List<Task> pending = index.view("Pending", null);
+
+        index.put(newTask("b", "Completed", "Low"));
+
+        assertSame(pending, index.view("Pending", null));
+        assertNotSame(pending, index.view(null, null));
+    }
+
+    @Test
+    public void tabSwitchesAt100k_comparedToRescan() {
+        List<Task> allTasks = new ArrayList<>(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            Task task = newTask(String.format("k%06d", i), STATUSES[i % 2], PRIORITIES[i % 3]);
+            allTasks.add(task);
+            index.put(task);
+        }
+
+        // What filterTasks did before: a fresh scan and copy per switch
+        long start = System.nanoTime();
+        int scanned = 0;
+        for (int i = 0; i < SWITCHES; i++) {
+            scanned += rescan(allTasks, STATUSES[i % 2], i % 3 == 0 ? PRIORITIES[i % 3] : null).size();
+        }
+        long scanNanos = System.nanoTime() - start;
+
+        // Switching back and forth with nothing changing hands back the built lists
+        for (int i = 0; i < 6; i++) {
+            index.view(STATUSES[i % 2], i % 3 == 0 ? PRIORITIES[i % 3] : null);
+        }
+        start = System.nanoTime();
+        int indexed = 0;
+        for (int i = 0; i < SWITCHES; i++) {
+            indexed += index.view(STATUSES[i % 2], i % 3 == 0 ? PRIORITIES[i % 3] : null).size();
+        }
+        long switchNanos = System.nanoTime() - start;
+
+        // Worst case: one task changes between every switch, as when a checkbox is ticked,
+        // so the bucket shown is rebuilt each time
+        start = System.nanoTime();
+        for (int i = 0; i < SWITCHES; i++) {
+            index.view(STATUSES[i % 2], i % 3 == 0 ? PRIORITIES[i % 3] : null);
+            index.put(allTasks.get(i));
+        }
+        long changeNanos = System.nanoTime() - start;
+
+        System.out.println(String.format("%d tab switches over %d tasks: rescan %.3f ms/switch, "
+                        + "TaskIndex %.4f ms/switch, %.3f ms/switch with a change before each",
+                SWITCHES, TASKS, scanNanos / 1e6 / SWITCHES, switchNanos / 1e6 / SWITCHES,
+                changeNanos / 1e6 / SWITCHES));
+        // Timings are printed only; what makes switches cheap is checked directly
+        assertEquals(scanned, indexed);
+        for (int i = 0; i < 6; i++) {
+            String status = STATUSES[i % 2];
+            String priority = i % 3 == 0 ? PRIORITIES[i % 3] : null;
+            // Built lists are handed back as they are while nothing changes
+            assertSame(index.view(status, priority), index.view(status, priority));
+            assertEquals(keysOf(rescan(allTasks, status, priority)), keysOf(index.view(status, priority)));
+        }
+
+        // A change moves just that task, and the views it touches show it at once
+        Task ticked = newTask(allTasks.get(0).getFirebaseId(), "Completed", allTasks.get(0).getPriority());
+        allTasks.set(0, ticked);
+        index.put(ticked);
+        assertEquals(TASKS / 2 - 1, index.countByStatus("Pending"));
+        assertEquals(keysOf(rescan(allTasks, "Pending", "High")), keysOf(index.view("Pending", "High")));
+        assertEquals(keysOf(rescan(allTasks, "Completed", null)), keysOf(index.view("Completed", null)));
+    }
+
+    private static List<Task> rescan(List<Task> allTasks, String status, String priority) {
+        List<Task> filtered = new ArrayList<>();
+        for (Task task : allTasks) {
+            if (task.getStatus().equals(status) && (priority == null || task.getPriority().equals(priority))) {
+                filtered.add(task);
+            }
+        }
+        return filtered;
+    }
+
+    private static Task newTask(String firebaseId, String status, String priority) {
+        Task task = new Task("Task " + firebaseId, "", "", priority, status, "", 0);
+        task.setFirebaseId(firebaseId);
+        return task;
+    }
+
+    private static List<String> keysOf(List<Task> tasks) {
+        List<String> keys = new ArrayList<>();
+        for (Task task : tasks) {
+            keys.add(task.getFirebaseId());
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,112 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.Task;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TaskQueryTest {
+
+    private static final int TASKS = 100_000;
+    private static final String[] STATUSES = {"Pending", "Completed"};
+    private static final String[] PRIORITIES = {"High", "Medium", "Low"};
+
+    @Test
+    public void everyPart_narrowsTheSameList() {
+        List<Task> tasks = Arrays.asList(
+                newTask("a", "Pay rent", "Pending", "High", 10L),
+                newTask("b", "Rent a car", "Pending", "Low", 12L),
+                newTask("c", "Café rent", "Completed", "High", 11L),
+                newTask("d", "Book dentist", "Pending", "High", null));
+
+        TaskQuery query = TaskQuery.ALL.withText("RENT");
+        assertEquals(Arrays.asList("a", "b", "c"), keysOf(query.run(tasks)));
+
+        query = query.withStatus("Pending");
+        assertEquals(Arrays.asList("a", "b"), keysOf(query.run(tasks)));
+
+        query = query.withDueDayRange(new long[]{11, 20});
+        assertEquals(Arrays.asList("b"), keysOf(query.run(tasks)));
+
+        query = query.withDueDayRange(null).withText("").withPriority("High");
+        assertEquals(Arrays.asList("a", "d"), keysOf(query.run(tasks)));
+        assertEquals(Arrays.asList("c"), keysOf(TaskQuery.ALL.withText("cafe").run(tasks)));
+    }
+
+    @Test
+    public void sortAndLimit_applyAfterFiltering() {
+        List<Task> tasks = Arrays.asList(
+                newTask("a", "A", "Pending", "Low", 30L),
+                newTask("b", "B", "Pending", "High", null),
+                newTask("c", "C", "Completed", "High", 10L),
+                newTask("d", "D", "Pending", "Medium", 20L));
+
+        TaskQuery pending = TaskQuery.ALL.withStatus("Pending");
+        assertEquals(Arrays.asList("d", "a", "b"), keysOf(pending.sortedBy(TaskQuery.Sort.DUE_DATE).run(tasks)));
+        assertEquals(Arrays.asList("b", "d", "a"), keysOf(pending.sortedBy(TaskQuery.Sort.PRIORITY).run(tasks)));
+        assertEquals(Arrays.asList("b", "d"), keysOf(pending.sortedBy(TaskQuery.Sort.PRIORITY).withLimit(2).run(tasks)));
+        assertEquals(Arrays.asList("a", "b"), keysOf(pending.withLimit(2).run(tasks)));
+    }
+
+    @Test
+    public void nothingToDo_returnsCandidatesAsIs() {
+        List<Task> tasks = Arrays.asList(newTask("a", "A", "Pending", "Low", null));
+
+        assertSame(tasks, TaskQuery.ALL.run(tasks));
+        assertSame(tasks, TaskQuery.ALL.withStatus("Pending").withStatus(null).run(tasks));
+    }
+
+    @Test
+    public void pushedDownParts_matchFullQuery() {
+        TaskIndex index = new TaskIndex();
+        List<Task> tasks = new ArrayList<>(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            Task task = newTask(String.format("k%06d", i), "Task " + i,
+                    STATUSES[i % 2], PRIORITIES[i % 3], (long) (i % 60));
+            tasks.add(task);
+            index.put(task);
+        }
+        TaskQuery query = TaskQuery.ALL.withStatus("Pending").withPriority("High")
+                .withDueDayRange(new long[]{0, 6}).sortedBy(TaskQuery.Sort.DUE_DATE);
+
+        // As MainActivity runs it: status and priority from the index, the rest in one pass
+        List<Task> pushedDown = query.withStatus(null).withPriority(null)
+                .run(index.view(query.getStatus(), query.getPriority()));
+        List<Task> fullPass = query.run(tasks);
+
+        assertEquals(keysOf(fullPass), keysOf(pushedDown));
+        assertFalse(fullPass.isEmpty());
+    }
+
+    @Test
+    public void sameFilter_ignoresTextSortAndLimit() {
+        TaskQuery filtered = TaskQuery.ALL.withStatus("Pending").withDueDayRange(new long[]{0, 6});
+
+        assertFalse(TaskQuery.ALL.isFiltered());
+        assertTrue(filtered.isFiltered());
+        assertTrue(filtered.hasSameFilter(TaskQuery.ALL.withDueDayRange(new long[]{0, 6})
+                .withStatus("Pending").withText("x").sortedBy(TaskQuery.Sort.DUE_DATE).withLimit(5)));
+        assertFalse(filtered.hasSameFilter(filtered.withDueDayRange(new long[]{0, 7})));
+        assertFalse(filtered.hasSameFilter(filtered.withPriority("High")));
+    }
+
+    private static Task newTask(String firebaseId, String title, String status, String priority, Long dueDay) {
+        Task task = new Task(title, "", "", priority, status, "", 0);
+        task.setFirebaseId(firebaseId);
+        task.setDueDay(dueDay);
+        return task;
+    }
+
+    private static List<String> keysOf(List<Task> tasks) {
+        List<String> keys = new ArrayList<>();
+        for (Task task : tasks) {
+            keys.add(task.getFirebaseId());
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,497 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.Task;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class TaskRepositoryTest {
+
+    private FakeSource source;
+    private FakeCache cache;
+    // Delayed work the repository scheduled, run by the test
+    private List<Runnable> timers;
+    private TaskRepository repository;
+
+    @Before
+    public void setUp() {
+        source = new FakeSource();
+        cache = new FakeCache();
+        timers = new ArrayList<>();
+        repository = new TaskRepository(source, cache, (work, delayMillis) -> {
+            assertEquals(TaskRepository.PENDING_TIMEOUT_MS, delayMillis);
+            timers.add(work);
+        });
+    }
+
+    @Test
+    public void repeatedResumeCycles_keepOneListener() {
+        RecordingObserver screen = new RecordingObserver();
+
+        for (int i = 0; i < 5; i++) {
+            repository.addObserver(screen);
+            repository.addObserver(screen);
+            assertEquals(1, source.listeners.size());
+            repository.removeObserver(screen);
+            assertEquals(0, source.listeners.size());
+        }
+        assertEquals(5, source.attachCount);
+    }
+
+    @Test
+    public void severalObservers_shareOneListener() {
+        RecordingObserver first = new RecordingObserver();
+        RecordingObserver second = new RecordingObserver();
+
+        repository.addObserver(first);
+        repository.addObserver(second);
+        source.add("a");
+
+        assertEquals(1, source.listeners.size());
+        assertEquals(1, first.added.size());
+        assertEquals(1, second.added.size());
+
+        repository.removeObserver(first);
+        assertEquals(1, source.listeners.size());
+        repository.removeObserver(second);
+        assertEquals(0, source.listeners.size());
+    }
+
+    @Test
+    public void lateObserver_getsCurrentTasksReplayed() {
+        RecordingObserver first = new RecordingObserver();
+        repository.addObserver(first);
+        source.add("a");
+        source.add("b");
+        source.remove("a");
+
+        RecordingObserver late = new RecordingObserver();
+        repository.addObserver(late);
+
+        assertEquals(1, late.added.size());
+        assertEquals("b", late.added.get(0).getFirebaseId());
+        assertEquals(1, repository.getTasks().size());
+    }
+
+    @Test
+    public void coldStart_showsCachedTasks_andFetchesOnlyChangesSinceWatermark() {
+        cache.save(newTask("a", 100));
+        cache.save(newTask("b", 200));
+        RecordingObserver screen = new RecordingObserver();
+
+        repository.addObserver(screen);
+
+        assertEquals(2, screen.added.size());
+        assertEquals(Long.valueOf(200), source.lastUpdatedSince);
+        // So a partitioned store keeps the partitions of cached tasks in sync too
+        assertEquals(2, source.lastHeldKeys.size());
+
+        // The delta query starts at the watermark, so "b" comes again as an unchanged add
+        source.add(newTask("b", 200));
+        source.add(newTask("c", 300));
+        assertEquals(3, screen.added.size());
+        assertEquals(1, screen.changed.size());
+        assertEquals(3, repository.getTasks().size());
+    }
+
+    @Test
+    public void loadOlderTasks_onlyWhileObserved() {
+        repository.loadOlderTasks();
+        assertEquals(0, source.olderLoads);
+
+        RecordingObserver screen = new RecordingObserver();
+        repository.addObserver(screen);
+        repository.loadOlderTasks();
+        source.add("old");
+
+        assertEquals(1, source.olderLoads);
+        assertEquals(1, screen.added.size());
+    }
+
+    @Test
+    public void emptyCache_fetchesEverything() {
+        repository.addObserver(new RecordingObserver());
+
+        assertEquals(1, source.attachCount);
+        assertNull(source.lastUpdatedSince);
+    }
+
+    @Test
+    public void tombstone_removesTask_andAdvancesWatermark() {
+        RecordingObserver screen = new RecordingObserver();
+        repository.addObserver(screen);
+        source.add("a");
+
+        Task tombstone = newTask("a", 500);
+        tombstone.setDeleted(true);
+        source.change(tombstone);
+
+        assertEquals(1, screen.removed.size());
+        assertTrue(repository.getTasks().isEmpty());
+        assertTrue(cache.load().isEmpty());
+        assertEquals(Long.valueOf(500), cache.getWatermark());
+    }
+
+    @Test
+    public void statusToggle_showsBeforeEcho_andEchoConfirmsIt() {
+        RecordingObserver screen = new RecordingObserver();
+        repository.addObserver(screen);
+        source.add("a");
+
+        assertTrue(repository.updateTaskStatus("a", "Completed"));
+
+        assertEquals("Completed", repository.getTask("a").getStatus());
+        assertEquals(1, screen.changed.size());
+        assertEquals(1, repository.getPendingCount());
+
+        source.change(withStatus(newTask("a", 1), "Completed"));
+        assertEquals(0, repository.getPendingCount());
+
+        // Once confirmed, a later remote change wins
+        source.change(withStatus(newTask("a", 2), "Pending"));
+        assertEquals("Pending", repository.getTask("a").getStatus());
+    }
+
+    @Test
+    public void remoteEdit_isRebasedUnderPendingToggle() {
+        repository.addObserver(new RecordingObserver());
+        source.add("a");
+        repository.updateTaskStatus("a", "Completed");
+
+        Task remote = newTask("a", 1);
+        remote.setTitle("Renamed elsewhere");
+        source.change(remote);
+
+        assertEquals("Renamed elsewhere", repository.getTask("a").getTitle());
+        assertEquals("Completed", repository.getTask("a").getStatus());
+        assertEquals(1, repository.getPendingCount());
+    }
+
+    @Test
+    public void rejectedWrite_rollsBack() {
+        RecordingObserver screen = new RecordingObserver();
+        repository.addObserver(screen);
+        source.add("a");
+        source.accept = false;
+
+        assertFalse(repository.updateTaskStatus("a", "Completed"));
+        assertFalse(repository.deleteTask("a"));
+
+        assertEquals("Pending", repository.getTask("a").getStatus());
+        assertEquals(0, repository.getPendingCount());
+        // Toggle and its rollback, then delete and its rollback
+        assertEquals(2, screen.changed.size());
+        assertEquals(1, screen.removed.size());
+        assertEquals(2, screen.added.size());
+    }
+
+    @Test
+    public void unechoedWrite_expiresAndRollsBack() {
+        RecordingObserver screen = new RecordingObserver();
+        repository.addObserver(screen);
+        source.add("a");
+        repository.updateTaskStatus("a", "Completed");
+
+        runTimers();
+
+        assertEquals("Pending", repository.getTask("a").getStatus());
+        assertEquals(0, repository.getPendingCount());
+        assertEquals(2, screen.changed.size());
+    }
+
+    @Test
+    public void confirmedWrite_isUntouchedByItsTimer() {
+        repository.addObserver(new RecordingObserver());
+        source.add("a");
+        repository.updateTaskStatus("a", "Completed");
+        source.change(withStatus(newTask("a", 1), "Completed"));
+
+        runTimers();
+
+        assertEquals("Completed", repository.getTask("a").getStatus());
+    }
+
+    @Test
+    public void writeRejectedLater_rollsBack() {
+        RecordingObserver screen = new RecordingObserver();
+        repository.addObserver(screen);
+        source.add("a");
+        source.add("b");
+        repository.updateTaskStatus("a", "Completed");
+        repository.deleteTask("b");
+
+        source.rejectedListener.onWriteRejected(Arrays.asList("a", "b"), "Permission denied");
+
+        assertEquals("Pending", repository.getTask("a").getStatus());
+        assertNotNull(repository.getTask("b"));
+        assertEquals(0, repository.getPendingCount());
+    }
+
+    @Test
+    public void clearPendingWrites_showsConfirmedTasks() {
+        repository.addObserver(new RecordingObserver());
+        source.add("a");
+        repository.updateTaskStatus("a", "Completed");
+        String key = repository.addTask(newTask(null, 0));
+
+        repository.clearPendingWrites();
+
+        assertEquals("Pending", repository.getTask("a").getStatus());
+        assertNull(repository.getTask(key));
+        assertEquals(0, repository.getPendingCount());
+    }
+
+    @Test
+    public void bulkActions_showAtOnce_asOneWrite() {
+        repository.addObserver(new RecordingObserver());
+        source.add("a");
+        source.add("b");
+        source.add("c");
+        int writesBefore = source.writes;
+
+        assertTrue(repository.updateTasksStatus(Arrays.asList("a", "b"), "Completed"));
+        assertTrue(repository.reassignTasks(Arrays.asList("b", "c"), "sam"));
+        assertTrue(repository.deleteTasks(Arrays.asList("c")));
+
+        assertEquals(3, source.writes - writesBefore);
+        assertEquals("Completed", repository.getTask("a").getStatus());
+        assertEquals("Completed", repository.getTask("b").getStatus());
+        assertEquals("sam", repository.getTask("b").getAssignedTo());
+        assertNull(repository.getTask("c"));
+
+        Task confirmed = withStatus(newTask("b", 1), "Completed");
+        source.change(confirmed);
+        confirmed.setAssignedTo("sam");
+        source.change(confirmed);
+        // a's status and c's reassignment and delete are still pending
+        assertEquals(3, repository.getPendingCount());
+    }
+
+    @Test
+    public void rejectedBulkAction_rollsBackEveryTask() {
+        repository.addObserver(new RecordingObserver());
+        source.add("a");
+        source.add("b");
+        source.accept = false;
+
+        assertFalse(repository.updateTasksStatus(Arrays.asList("a", "b"), "Completed"));
+
+        assertEquals("Pending", repository.getTask("a").getStatus());
+        assertEquals("Pending", repository.getTask("b").getStatus());
+        assertEquals(0, repository.getPendingCount());
+    }
+
+    @Test
+    public void delete_andAdd_showBeforeEcho() {
+        RecordingObserver screen = new RecordingObserver();
+        repository.addObserver(screen);
+        source.add("a");
+
+        repository.deleteTask("a");
+        String key = repository.addTask(newTask(null, 0));
+
+        assertNull(repository.getTask("a"));
+        assertNotNull(repository.getTask(key));
+
+        source.remove("a");
+        source.add(newTask(key, 5));
+        assertEquals(0, repository.getPendingCount());
+        assertEquals(1, repository.getTasks().size());
+    }
+
+    @Test
+    public void writeWhileNobodyObserves_showsOnReturn() {
+        String key = repository.addTask(newTask(null, 0));
+
+        RecordingObserver screen = new RecordingObserver();
+        repository.addObserver(screen);
+
+        assertEquals(1, screen.added.size());
+        assertEquals(key, screen.added.get(0).getFirebaseId());
+    }
+
+    private void runTimers() {
+        List<Runnable> due = new ArrayList<>(timers);
+        timers.clear();
+        for (Runnable timer : due) {
+            timer.run();
+        }
+    }
+
+    private static Task withStatus(Task task, String status) {
+        task.setStatus(status);
+        return task;
+    }
+
+    private static Task newTask(String firebaseId, long updatedAt) {
+        Task task = new Task("Task " + firebaseId, "", "", "Low", "Pending", "", 0);
+        task.setFirebaseId(firebaseId);
+        task.setUpdatedAt(updatedAt);
+        return task;
+    }
+
+    // Events are fed by hand; writes are only recorded, and fail while accept is false
+    private static class FakeSource implements TaskStore {
+        final List<FirebaseHelper.OnTaskChangeListener> listeners = new ArrayList<>();
+        int attachCount;
+        Long lastUpdatedSince;
+        Collection<String> lastHeldKeys;
+        int olderLoads;
+
+        boolean accept = true;
+        int writes;
+        OnWriteRejectedListener rejectedListener;
+
+        @Override
+        public String addTask(Task task) {
+            writes++;
+            task.setFirebaseId("new" + writes);
+            return accept ? task.getFirebaseId() : null;
+        }
+
+        @Override
+        public boolean updateTaskStatus(String taskKey, String status) {
+            writes++;
+            return accept;
+        }
+
+        @Override
+        public boolean deleteTask(String taskKey) {
+            writes++;
+            return accept;
+        }
+
+        @Override
+        public boolean updateTasksStatus(Collection<String> taskKeys, String status) {
+            writes++;
+            return accept;
+        }
+
+        @Override
+        public boolean deleteTasks(Collection<String> taskKeys) {
+            writes++;
+            return accept;
+        }
+
+        @Override
+        public boolean reassignTasks(Collection<String> taskKeys, String assignedTo) {
+            writes++;
+            return accept;
+        }
+
+        @Override
+        public TaskRepository.Cancellable observeTasks(Long updatedSince, Collection<String> heldKeys,
+                                                       FirebaseHelper.OnTaskChangeListener listener) {
+            listeners.add(listener);
+            attachCount++;
+            lastUpdatedSince = updatedSince;
+            lastHeldKeys = heldKeys;
+            return () -> listeners.remove(listener);
+        }
+
+        @Override
+        public void loadOlderTasks() {
+            olderLoads++;
+        }
+
+        @Override
+        public void setOnWriteRejectedListener(OnWriteRejectedListener listener) {
+            rejectedListener = listener;
+        }
+
+        void add(String firebaseId) {
+            add(newTask(firebaseId, 0));
+        }
+
+        void add(Task task) {
+            for (FirebaseHelper.OnTaskChangeListener listener : listeners) {
+                listener.onTaskAdded(task);
+            }
+        }
+
+        void change(Task task) {
+            for (FirebaseHelper.OnTaskChangeListener listener : listeners) {
+                listener.onTaskChanged(task);
+            }
+        }
+
+        void remove(String firebaseId) {
+            for (FirebaseHelper.OnTaskChangeListener listener : listeners) {
+                listener.onTaskRemoved(firebaseId);
+            }
+        }
+    }
+
+    // Keeps tombstones like SyncedTaskCache, but in memory
+    private static class FakeCache implements TaskRepository.TaskCache {
+        final Map<String, Task> tasks = new TreeMap<>();
+
+        @Override
+        public List<Task> load() {
+            List<Task> live = new ArrayList<>();
+            for (Task task : tasks.values()) {
+                if (!task.isDeleted()) {
+                    live.add(task);
+                }
+            }
+            return live;
+        }
+
+        @Override
+        public Long getWatermark() {
+            Long watermark = null;
+            for (Task task : tasks.values()) {
+                if (task.getUpdatedAt() != null && (watermark == null || task.getUpdatedAt() > watermark)) {
+                    watermark = task.getUpdatedAt();
+                }
+            }
+            return watermark;
+        }
+
+        @Override
+        public void save(Task task) {
+            tasks.put(task.getFirebaseId(), task);
+        }
+
+        @Override
+        public void remove(String firebaseId) {
+            tasks.remove(firebaseId);
+        }
+    }
+
+    private static class RecordingObserver implements FirebaseHelper.OnTaskChangeListener {
+        final List<Task> added = new ArrayList<>();
+        final List<Task> changed = new ArrayList<>();
+        final List<String> removed = new ArrayList<>();
+
+        @Override
+        public void onTaskAdded(Task task) {
+            added.add(task);
+        }
+
+        @Override
+        public void onTaskChanged(Task task) {
+            changed.add(task);
+        }
+
+        @Override
+        public void onTaskRemoved(String firebaseId) {
+            removed.add(firebaseId);
+        }
+
+        @Override
+        public void onTaskMoved(String firebaseId, String previousFirebaseId) {}
+
+        @Override
+        public void onError(String error) {}
+    }
+}
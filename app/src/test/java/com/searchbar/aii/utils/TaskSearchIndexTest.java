@@ -0,0 +1,150 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.Task;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TaskSearchIndexTest {
+
+    private static final int TASKS = 100_000;
+    private static final int KEYSTROKES = 2_000;
+    private static final String[] WORDS = {"report", "invoice", "groceries", "dentist", "café",
+            "meeting", "deploy", "review", "budget", "résumé", "garden", "laundry", "flight",
+            "birthday", "doctor", "plumber", "taxes", "lecture", "workout", "rent"};
+
+    private TaskSearchIndex index;
+
+    @Before
+    public void setUp() {
+        index = new TaskSearchIndex();
+    }
+
+    @Test
+    public void matchesSubstrings_ignoringCaseAndAccents() {
+        index.put(newTask("a", "Café with Sam", "bring the RÉSUMÉ"));
+        index.put(newTask("b", "Pay rent", ""));
+
+        assertEquals(Arrays.asList("a"), keysOf(index.search("cafe")));
+        assertEquals(Arrays.asList("a"), keysOf(index.search("Resum")));
+        assertEquals(Arrays.asList("a"), keysOf(index.search("é w")));
+        assertEquals(Arrays.asList("b"), keysOf(index.search("ay r")));
+        assertEquals(Arrays.asList("a", "b"), keysOf(index.search("a")));
+        assertTrue(index.search("rent bring").isEmpty());
+    }
+
+    @Test
+    public void changesAndRemovals_updatePostings() {
+        index.put(newTask("a", "Buy milk", ""));
+        index.put(newTask("b", "Buy bread", ""));
+
+        index.put(newTask("a", "Sell milk", ""));
+        index.remove("b");
+
+        assertTrue(index.search("buy").isEmpty());
+        assertEquals(Arrays.asList("a"), keysOf(index.search("sell")));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void results_comeInKeyOrder() {
+        // An older month is loaded after the recent ones, so its tasks are indexed last
+        index.put(newTask("2025-03/-c", "Call plumber", ""));
+        index.put(newTask("2025-03/-d", "Call bank", ""));
+        index.put(newTask("2025-02/-a", "Call dentist", ""));
+
+        assertEquals(Arrays.asList("2025-02/-a", "2025-03/-c", "2025-03/-d"), keysOf(index.search("ca")));
+        assertEquals(Arrays.asList("2025-02/-a", "2025-03/-c", "2025-03/-d"), keysOf(index.search("call")));
+    }
+
+    @Test
+    public void keystrokeLatencyAt100k_comparedToScan() {
+        Random random = new Random(42);
+        List<Task> tasks = new ArrayList<>(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            Task task = newTask(String.format("k%06d", i),
+                    word(random) + " " + word(random) + " " + i,
+                    word(random) + " " + word(random) + " " + word(random));
+            tasks.add(task);
+            index.put(task);
+        }
+
+        // Each query is typed a character at a time, as searchTasks sees it
+        List<String> keystrokes = new ArrayList<>();
+        while (keystrokes.size() < KEYSTROKES) {
+            String query = word(random) + " " + random.nextInt(TASKS);
+            for (int length = 1; length <= query.length(); length++) {
+                keystrokes.add(query.substring(0, length));
+            }
+        }
+
+        long[] indexNanos = new long[keystrokes.size()];
+        long[] scanNanos = new long[keystrokes.size()];
+        for (int i = 0; i < keystrokes.size(); i++) {
+            String query = keystrokes.get(i);
+            long start = System.nanoTime();
+            int found = index.search(query).size();
+            indexNanos[i] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int scanned = scan(tasks, query).size();
+            scanNanos[i] = System.nanoTime() - start;
+            // The old scan is accent-sensitive, so it can only find fewer
+            assertTrue(query, scanned <= found);
+        }
+
+        // Printed only: latency depends on the machine running the tests
+        long indexP99 = percentile(indexNanos, 99);
+        long scanP99 = percentile(scanNanos, 99);
+        System.out.println(String.format("%d keystrokes over %d tasks: toLowerCase scan p50 %.2f ms p99 %.2f ms, "
+                        + "trigram index p50 %.2f ms p99 %.2f ms",
+                keystrokes.size(), TASKS, percentile(scanNanos, 50) / 1e6, scanP99 / 1e6,
+                percentile(indexNanos, 50) / 1e6, indexP99 / 1e6));
+    }
+
+    // What searchTasks did before
+    private static List<Task> scan(List<Task> tasks, String query) {
+        List<Task> results = new ArrayList<>();
+        query = query.toLowerCase();
+        for (Task task : tasks) {
+            if (task.getTitle().toLowerCase().contains(query)
+                    || task.getDescription().toLowerCase().contains(query)) {
+                results.add(task);
+            }
+        }
+        return results;
+    }
+
+    private static long percentile(long[] nanos, int percent) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static Task newTask(String firebaseId, String title, String description) {
+        Task task = new Task(title, description, "", "Low", "Pending", "", 0);
+        task.setFirebaseId(firebaseId);
+        return task;
+    }
+
+    private static List<String> keysOf(List<Task> tasks) {
+        List<String> keys = new ArrayList<>();
+        for (Task task : tasks) {
+            keys.add(task.getFirebaseId());
+        }
+        Collections.sort(keys);
+        return keys;
+    }
+}
@@ -0,0 +1,89 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.Task;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Write throughput of each {@link TaskStore} as the app sees it: adds and status changes
+ * through TaskRepository until its observer has them all. Prints its figures and asserts
+ * nothing, so it never fails a build; it is ignored by default because the SQLite run takes
+ * a while under Robolectric. Remove the @Ignore to run it.
+ */
+@Ignore("Benchmark, run by hand")
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class TaskStoreBenchmarkTest {
+
+    private static final int WRITES = 1_000;
+
+    @Test
+    public void inMemory() throws Exception {
+        run(new InMemoryTaskStore(), null);
+    }
+
+    @Test
+    public void fakeFirebase() throws Exception {
+        FakeFirebaseTaskStore store = new FakeFirebaseTaskStore(20);
+        try {
+            run(store, store);
+        } finally {
+            store.shutdown();
+        }
+    }
+
+    @Test
+    public void sqlite() throws Exception {
+        DatabaseHelper databaseHelper = DatabaseHelper.getInstance(RuntimeEnvironment.getApplication());
+        try {
+            run(new SqliteTaskStore(databaseHelper, 1), null);
+        } finally {
+            databaseHelper.close();
+        }
+    }
+
+    // fakeFirebase, when given, is waited on for the change events still on their way
+    private static void run(TaskStore store, FakeFirebaseTaskStore fakeFirebase) throws Exception {
+        TaskRepository repository = new TaskRepository(store, TaskRepository.NO_CACHE, (work, delayMillis) -> {});
+        repository.addObserver(new FirebaseHelper.OnTaskChangeListener() {
+            @Override
+            public void onTaskAdded(Task task) {}
+
+            @Override
+            public void onTaskChanged(Task task) {}
+
+            @Override
+            public void onTaskRemoved(String firebaseId) {}
+
+            @Override
+            public void onTaskMoved(String firebaseId, String previousFirebaseId) {}
+
+            @Override
+            public void onError(String error) {}
+        });
+
+        long start = System.nanoTime();
+        List<String> keys = new ArrayList<>(WRITES);
+        for (int i = 0; i < WRITES; i++) {
+            keys.add(repository.addTask(new Task("Task " + i, "", "1/1/2025", "Low", "Pending", "", 1)));
+        }
+        for (String key : keys) {
+            repository.updateTaskStatus(key, "Completed");
+        }
+        if (fakeFirebase != null) {
+            fakeFirebase.settle();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println(String.format("%s: %d adds + %d status changes, %.0f writes/sec until observed",
+                store.getClass().getSimpleName(), WRITES, WRITES, 2 * WRITES * 1e9 / elapsed));
+    }
+}
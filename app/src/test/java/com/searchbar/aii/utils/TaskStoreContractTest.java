@@ -0,0 +1,141 @@
+package com.searchbar.aii.utils;
+
+import com.searchbar.aii.models.Task;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+// Behaviour every TaskStore must share, checked through TaskRepository the way the app
+// uses it. Subclasses supply the backend; TaskStoreBenchmarkTest times them.
+public abstract class TaskStoreContractTest {
+
+    private static final int WRITES = 100;
+
+    protected TaskStore store;
+    private TaskRepository repository;
+
+    protected abstract TaskStore createStore();
+
+    // Waits for change events still on their way; stores that notify synchronously have none
+    protected void settle() throws Exception {}
+
+    @Before
+    public void setUpStore() {
+        store = createStore();
+        repository = newRepository();
+    }
+
+    @Test
+    public void addedTask_isDeliveredUnderItsKey() throws Exception {
+        String key = repository.addTask(newTask("Write report"));
+        settle();
+
+        assertNotNull(key);
+        assertEquals("Write report", repository.getTask(key).getTitle());
+        assertEquals(1, repository.getTasks().size());
+    }
+
+    @Test
+    public void statusChange_reachesObservers() throws Exception {
+        String key = repository.addTask(newTask("Write report"));
+
+        assertTrue(repository.updateTaskStatus(key, "Completed"));
+        settle();
+
+        assertEquals("Completed", repository.getTask(key).getStatus());
+    }
+
+    @Test
+    public void deletedTask_disappears() throws Exception {
+        String kept = repository.addTask(newTask("Keep"));
+        String deleted = repository.addTask(newTask("Delete"));
+
+        assertTrue(repository.deleteTask(deleted));
+        // Firebase takes a write to a deleted task; it must not bring the task back
+        assertTrue(repository.updateTaskStatus(deleted, "Completed"));
+        settle();
+
+        assertEquals(1, repository.getTasks().size());
+        assertNotNull(repository.getTask(kept));
+        assertNull(repository.getTask(deleted));
+    }
+
+    @Test
+    public void newObserver_getsExistingTasks() throws Exception {
+        repository.addTask(newTask("First"));
+        repository.addTask(newTask("Second"));
+
+        TaskRepository other = newRepository();
+        settle();
+
+        assertEquals(2, other.getTasks().size());
+    }
+
+    @Test
+    public void manyWrites_allArriveInOrder() throws Exception {
+        List<String> keys = new ArrayList<>(WRITES);
+        for (int i = 0; i < WRITES; i++) {
+            keys.add(repository.addTask(newTask("Task " + i)));
+        }
+        for (String key : keys) {
+            repository.updateTaskStatus(key, "Completed");
+        }
+        settle();
+
+        assertEquals(WRITES, repository.getTasks().size());
+        for (Task task : repository.getTasks()) {
+            assertEquals("Completed", task.getStatus());
+        }
+    }
+
+    private TaskRepository newRepository() {
+        TaskRepository repository = new TaskRepository(store, new NoCache(), (work, delayMillis) -> {});
+        repository.addObserver(new NoOpObserver());
+        return repository;
+    }
+
+    private static Task newTask(String title) {
+        return new Task(title, "", "1/1/2025", "Low", "Pending", "", 1);
+    }
+
+    private static class NoCache implements TaskRepository.TaskCache {
+        @Override
+        public List<Task> load() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Long getWatermark() {
+            return null;
+        }
+
+        @Override
+        public void save(Task task) {}
+
+        @Override
+        public void remove(String firebaseId) {}
+    }
+
+    private static class NoOpObserver implements FirebaseHelper.OnTaskChangeListener {
+        @Override
+        public void onTaskAdded(Task task) {}
+
+        @Override
+        public void onTaskChanged(Task task) {}
+
+        @Override
+        public void onTaskRemoved(String firebaseId) {}
+
+        @Override
+        public void onTaskMoved(String firebaseId, String previousFirebaseId) {}
+
+        @Override
+        public void onError(String error) {}
+    }
+}
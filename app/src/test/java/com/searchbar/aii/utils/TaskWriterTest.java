@@ -0,0 +1,157 @@
+package com.searchbar.aii.utils;
+
+import android.database.sqlite.SQLiteException;
+
+import com.searchbar.aii.models.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class TaskWriterTest {
+
+    private DatabaseHelper databaseHelper;
+    private TaskWriter taskWriter;
+
+    @Before
+    public void setUp() {
+        databaseHelper = DatabaseHelper.getInstance(RuntimeEnvironment.getApplication());
+        taskWriter = new TaskWriter(databaseHelper);
+    }
+
+    @After
+    public void tearDown() {
+        taskWriter.shutdown();
+        databaseHelper.close();
+    }
+
+    @Test
+    public void rapidToggles_coalesceIntoOneWrite() throws Exception {
+        long id = taskWriter.insert(newTask()).get(1, TimeUnit.SECONDS);
+
+        List<Future<Boolean>> toggles = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            toggles.add(taskWriter.updateStatus((int) id, i % 2 == 0 ? "Completed" : "Pending"));
+        }
+        for (Future<Boolean> toggle : toggles) {
+            assertTrue(toggle.get(1, TimeUnit.SECONDS));
+        }
+
+        TaskWriter.Metrics metrics = taskWriter.getMetrics();
+        assertEquals("Pending", databaseHelper.getTask((int) id).getStatus());
+        assertEquals(9, metrics.getCoalescedWrites());
+        assertEquals(2, metrics.getCommittedWrites());
+    }
+
+    @Test
+    public void deleteReplacesQueuedStatusChange() throws Exception {
+        long id = taskWriter.insert(newTask()).get(1, TimeUnit.SECONDS);
+
+        Future<Boolean> update = taskWriter.updateStatus((int) id, "Completed");
+        Future<Boolean> delete = taskWriter.delete((int) id);
+
+        assertTrue(delete.get(1, TimeUnit.SECONDS));
+        // The status change never reached the row
+        assertFalse(update.get(1, TimeUnit.SECONDS));
+        assertNull(databaseHelper.getTask((int) id));
+    }
+
+    @Test
+    public void statusChangeAfterQueuedDelete_isDropped() throws Exception {
+        long id = taskWriter.insert(newTask()).get(1, TimeUnit.SECONDS);
+
+        Future<Boolean> delete = taskWriter.delete((int) id);
+        Future<Boolean> update = taskWriter.updateStatus((int) id, "Completed");
+
+        assertTrue(delete.get(1, TimeUnit.SECONDS));
+        assertFalse(update.get(1, TimeUnit.SECONDS));
+        assertNull(databaseHelper.getTask((int) id));
+    }
+
+    @Test
+    public void syncedTaskWrites_coalescePerTask() throws Exception {
+        Task task = newTask();
+        task.setFirebaseId("202510/k1");
+        Future<Boolean> first = taskWriter.saveSynced("uid", task);
+        Future<Boolean> second = taskWriter.saveSynced("uid", task);
+        Task other = newTask();
+        other.setFirebaseId("202510/k2");
+        Future<Boolean> kept = taskWriter.saveSynced("uid", other);
+        Future<Boolean> delete = taskWriter.deleteSynced("uid", "202510/k1");
+
+        assertTrue(delete.get(1, TimeUnit.SECONDS));
+        assertTrue(kept.get(1, TimeUnit.SECONDS));
+        assertFalse(first.get(1, TimeUnit.SECONDS));
+        assertFalse(second.get(1, TimeUnit.SECONDS));
+        assertEquals(2, taskWriter.getMetrics().getCoalescedWrites());
+        List<Task> synced = databaseHelper.getSyncedTasks("uid");
+        assertEquals(1, synced.size());
+        assertEquals("202510/k2", synced.get(0).getFirebaseId());
+    }
+
+    @Test
+    public void failedCommit_failsEveryWrite() throws Exception {
+        DatabaseHelper failing = new DatabaseHelper(RuntimeEnvironment.getApplication()) {
+            @Override
+            public void runInTransaction(Runnable work) {
+                throw new SQLiteException("disk I/O error");
+            }
+        };
+        TaskWriter writer = new TaskWriter(failing);
+        try {
+            Future<Long> insert = writer.insert(newTask());
+            Future<Boolean> update = writer.updateStatus(1, "Completed");
+            Future<Boolean> delete = writer.delete(1);
+
+            assertFailed(insert);
+            assertFailed(update);
+            assertFailed(delete);
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    public void burstOfInserts_commitsInFewBatches() throws Exception {
+        List<Future<Long>> inserts = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            inserts.add(taskWriter.insert(newTask()));
+        }
+        for (Future<Long> insert : inserts) {
+            assertTrue(insert.get(5, TimeUnit.SECONDS) > 0);
+        }
+
+        TaskWriter.Metrics metrics = taskWriter.getMetrics();
+        System.out.println(String.format("TaskWriter: %.0f writes/sec in %d batches, main thread blocked %d us",
+                metrics.getWritesPerSecond(), metrics.getBatches(), metrics.getMainThreadBlockedNanos() / 1000));
+        assertEquals(2_000, databaseHelper.getAllTasks(1).size());
+        assertTrue(metrics.getBatches() < 2_000);
+    }
+
+    private static void assertFailed(Future<?> future) throws Exception {
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail("Write reported success");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SQLiteException);
+        }
+    }
+
+    private static Task newTask() {
+        return new Task("Task", "", "", "Low", "Pending", "", 1);
+    }
+}